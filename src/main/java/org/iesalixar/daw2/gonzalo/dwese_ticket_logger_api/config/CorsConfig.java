@@ -26,6 +26,7 @@ public class CorsConfig {
                         .allowedOrigins(allowedOrigins) // usa los dominios de las variables de entorno
                         .allowedMethods("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS")
                         .allowedHeaders("*")
+                        .exposedHeaders("X-Next-Cursor") // cursor de paginación de las notificaciones
                         .allowCredentials(true);
             }
         };
@@ -41,6 +42,7 @@ public class CorsConfig {
         corsConfig.setAllowedOriginPatterns(List.of(allowedOrigins));
         corsConfig.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS"));
         corsConfig.setAllowedHeaders(List.of("*"));
+        corsConfig.setExposedHeaders(List.of("X-Next-Cursor"));
         corsConfig.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -0,0 +1,103 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.config;
+
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.AuthorityRegistry;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.CustomUserDetailsService;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.TokenRevocationService;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.utils.JwtPrincipal;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.utils.JwtUtil;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.utils.VerifiedJwt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Convierte un token JWT en una autenticación de Spring Security.
+ * Lo comparten el filtro HTTP y el interceptor de WebSockets para que ambos apliquen las mismas reglas.
+ * <p>
+ * Admite dos modos, seleccionados con la propiedad {@code jwt.auth.claims-only}:
+ * <ul>
+ *     <li>Por defecto, el usuario se carga desde la base de datos (a través de la caché de principales)
+ *     y se rechaza si está deshabilitado.</li>
+ *     <li>En modo "solo claims" el principal se construye directamente con los claims del token
+ *     (sub, id y roles) sin acceder a la base de datos. Los usuarios deshabilitados se cubren con
+ *     el conjunto de revocaciones; los cambios de roles no se reflejan hasta que el token expira.</li>
+ * </ul>
+ */
+@Component
+public class JwtAuthenticationResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationResolver.class);
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private AuthorityRegistry authorityRegistry;
+
+    // Si está activo, la autenticación se construye solo con los claims del token
+    @Value("${jwt.auth.claims-only:false}")
+    private boolean claimsOnly;
+
+    /**
+     * Verifica el token y construye la autenticación correspondiente.
+     *
+     * @param token el token JWT (sin el prefijo "Bearer ").
+     * @return la autenticación del usuario, o vacío si el token no es válido, está revocado
+     * o el usuario ya no puede autenticarse.
+     */
+    public Optional<UsernamePasswordAuthenticationToken> resolve(String token) {
+        // Verificar el token una única vez (firma y expiración) y obtener sus claims
+        Optional<VerifiedJwt> verified = jwtUtil.verify(token);
+        if (verified.isEmpty() || verified.get().username() == null) {
+            return Optional.empty();
+        }
+        VerifiedJwt verifiedJwt = verified.get();
+
+        // Rechazar los tokens de usuarios revocados (deshabilitados o eliminados)
+        if (tokenRevocationService.isRevoked(verifiedJwt)) {
+            logger.debug("Token revocado para el usuario {}", verifiedJwt.username());
+            return Optional.empty();
+        }
+
+        // Convertir los roles del claim "roles" en GrantedAuthority usando las instancias canónicas
+        List<GrantedAuthority> authorities = authorityRegistry.resolve(verifiedJwt.roles());
+
+        Object principal;
+        if (claimsOnly && !tokenRevocationService.requiresUserCheck()) {
+            // Principal ligero sin acceso a la base de datos
+            principal = JwtPrincipal.from(verifiedJwt);
+        } else {
+            try {
+                // Sin un conjunto de revocaciones fiable, la caché de otro nodo podría estar desactualizada
+                UserDetails userDetails = claimsOnly
+                        ? userDetailsService.loadUserByUsername(verifiedJwt.username())
+                        : userDetailsService.loadCachedUserByUsername(verifiedJwt.username());
+                if (!userDetails.isEnabled()) {
+                    logger.debug("El usuario {} está deshabilitado", verifiedJwt.username());
+                    return Optional.empty();
+                }
+                principal = claimsOnly ? JwtPrincipal.from(verifiedJwt) : userDetails;
+            } catch (UsernameNotFoundException e) {
+                logger.warn("Token válido para un usuario inexistente: {}", verifiedJwt.username());
+                return Optional.empty();
+            }
+        }
+
+        return Optional.of(new UsernamePasswordAuthenticationToken(principal, null, authorities));
+    }
+}
@@ -1,57 +1,72 @@
 package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.config;
 
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.Notification;
-import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.NotificationRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 
 import java.time.Instant;
-import java.util.UUID;
+import java.util.List;
 
 /**
- * Componente encargado de cargar datos iniciales en la colección de
- notificaciones en MongoDB.
- * Se ejecuta al iniciar la aplicación y elimina las notificaciones previas para
- insertar nuevas.
+ * Componente encargado de cargar datos de ejemplo en la colección de notificaciones en MongoDB.
+ * Solo se activa con los perfiles "dev" o "seed" y no borra los datos existentes: cada notificación
+ * de ejemplo tiene un identificador fijo y se inserta únicamente si no existe (upsert), por lo que
+ * puede ejecutarse en cada arranque sin duplicar datos ni sobrescribir su estado de lectura.
+ * La carga se lanza cuando la aplicación ya está lista, sin retrasar el arranque.
  */
 @Component
-public class NotificationDataLoader implements CommandLineRunner {
+@Profile({"dev", "seed"})
+public class NotificationDataLoader {
 
     private static final Logger logger =
             LoggerFactory.getLogger(NotificationDataLoader.class);
 
+    // Notificaciones de ejemplo con identificadores fijos (ObjectId válidos)
+    private static final List<Notification> SAMPLE_NOTIFICATIONS = List.of(
+            new Notification("650000000000000000000001",
+                    "Precio más bajo", "Precio más bajo para el producto en el supermercado Mercadona", List.of(), null, null),
+            new Notification("650000000000000000000002",
+                    "Producto nuevo añadido", "Se ha añadido un nuevo producto", List.of(), null, null),
+            new Notification("650000000000000000000003",
+                    "Nuevo usuario", "Se ha registrado un nuevo usuario", List.of(), null, null)
+    );
+
     @Autowired
-    private NotificationRepository notificationRepository;
+    private ReactiveMongoTemplate reactiveMongoTemplate;
 
     /**
-     * Método que se ejecuta al inicio de la aplicación para insertar
-     notificaciones de ejemplo.
-     *
-     * @param args argumentos de la línea de comandos
+     * Inserta las notificaciones de ejemplo que falten una vez arrancada la aplicación.
      */
-    @Override
-    public void run(String... args) {
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadNotifications() {
         logger.info("Iniciando la carga de datos de notificaciones...");
+        long start = System.nanoTime();
 
-        notificationRepository.deleteAll() // Limpia las notificaciones previas
-                .thenMany(
-                        Flux.just(
-                                new Notification(UUID.randomUUID().toString(),
-                                        "Precio más bajo", "Precio más bajo para el producto en el supermercado Mercadona", false, Instant.now()),
-        new Notification(UUID.randomUUID().toString(),
-                "Producto nuevo añadido", "Se ha añadido un nuevo producto", false,
-                Instant.now()),
-                new Notification(UUID.randomUUID().toString(),
-                        "Nuevo usuario", "Se ha registrado un nuevo usuario", false, Instant.now())
-                       )
-               )
-               .flatMap(notificationRepository::save) // Inserta las notificaciones en MongoDB
-                .doOnNext(notification -> logger.info("Notificación insertada: {}", notification))
-                .doOnError(error -> logger.error("Error al insertar notificación", error))
-                                .subscribe();
+        Flux.fromIterable(SAMPLE_NOTIFICATIONS)
+                .concatMap(notification -> reactiveMongoTemplate.upsert(
+                        new Query(Criteria.where("id").is(notification.getId())),
+                        // Solo se escriben los campos al insertar: si ya existe, no se modifica
+                        new Update()
+                                .setOnInsert("subject", notification.getSubject())
+                                .setOnInsert("message", notification.getMessage())
+                                .setOnInsert("readBy", notification.getReadBy())
+                                .setOnInsert("createdAt", Instant.now()),
+                        Notification.class))
+                .filter(result -> result.getUpsertedId() != null)
+                .count()
+                .subscribe(
+                        inserted -> logger.info("Carga de notificaciones completada en {} ms: {} insertadas, {} ya existían.",
+                                (System.nanoTime() - start) / 1_000_000, inserted, SAMPLE_NOTIFICATIONS.size() - inserted),
+                        error -> logger.error("Error al cargar las notificaciones de ejemplo", error));
     }
-}
\ No newline at end of file
+}
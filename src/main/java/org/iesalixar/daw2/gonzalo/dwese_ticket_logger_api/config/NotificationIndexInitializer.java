@@ -0,0 +1,116 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.config;
+
+import com.mongodb.MongoCommandException;
+import org.bson.Document;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.Notification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Componente encargado de crear los índices de la colección de notificaciones al iniciar la aplicación.
+ * <ul>
+ *     <li>readBy + createdAt + _id: notificaciones leídas por un usuario, ordenadas por fecha.</li>
+ *     <li>createdAt + _id: listados sin filtro ordenados por fecha (paginación por cursor).</li>
+ *     <li>recipient + createdAt + _id: notificaciones visibles para un usuario (generales y propias).</li>
+ *     <li>TTL sobre createdAt: MongoDB elimina las notificaciones más antiguas que la retención configurada.
+ *     Está desactivado por defecto, ya que al activarlo se borran las notificaciones existentes que la superan.</li>
+ * </ul>
+ * Crear un índice que ya existe con la misma definición no tiene efecto, por lo que es seguro en cada arranque.
+ */
+@Component
+public class NotificationIndexInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationIndexInitializer.class);
+
+    private static final String TTL_INDEX_NAME = "createdAt_ttl";
+
+    // Código de error de MongoDB cuando un índice con el mismo nombre existe con otras opciones
+    private static final int INDEX_OPTIONS_CONFLICT = 85;
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    // Días que se conservan las notificaciones (0, por defecto, desactiva el borrado automático)
+    @Value("${notifications.retention-days:0}")
+    private long retentionDays;
+
+    /**
+     * Crea los índices una vez arrancada la aplicación.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        ReactiveIndexOperations indexOps = reactiveMongoTemplate.indexOps(Notification.class);
+
+        indexOps.createIndex(new Index()
+                        .on("readBy", Sort.Direction.ASC)
+                        .on("createdAt", Sort.Direction.DESC)
+                        .on("_id", Sort.Direction.DESC)
+                        .named("readBy_createdAt_id"))
+                // Índice del antiguo estado de lectura compartido, que ya no se usa
+                .then(indexOps.dropIndex("read_createdAt_id").onErrorResume(e -> Mono.empty()))
+                .then(indexOps.createIndex(new Index()
+                        .on("createdAt", Sort.Direction.DESC)
+                        .on("_id", Sort.Direction.DESC)
+                        .named("createdAt_id")))
+                .then(indexOps.createIndex(new Index()
+                        .on("recipient", Sort.Direction.ASC)
+                        .on("createdAt", Sort.Direction.DESC)
+                        .on("_id", Sort.Direction.DESC)
+                        .named("recipient_createdAt_id")))
+                .then(configureRetention(indexOps))
+                .doOnSuccess(ignored -> logger.info("Índices de la colección de notificaciones comprobados."))
+                .doOnError(error -> logger.error("Error al crear los índices de notificaciones", error))
+                .subscribe();
+    }
+
+    /**
+     * Crea el índice TTL con la retención configurada. Si ya existía con otra retención, MongoDB
+     * rechaza la creación con IndexOptionsConflict y se cambia la retención con collMod, sin
+     * eliminar el índice. Cualquier otro error se propaga.
+     */
+    private Mono<String> configureRetention(ReactiveIndexOperations indexOps) {
+        if (retentionDays <= 0) {
+            logger.info("Retención de notificaciones desactivada.");
+            return indexOps.dropIndex(TTL_INDEX_NAME)
+                    .onErrorResume(e -> Mono.empty()) // El índice puede no existir
+                    .then(Mono.empty());
+        }
+        Index ttlIndex = new Index()
+                .on("createdAt", Sort.Direction.ASC)
+                .expire(Duration.ofDays(retentionDays))
+                .named(TTL_INDEX_NAME);
+        return indexOps.createIndex(ttlIndex)
+                .onErrorResume(NotificationIndexInitializer::isIndexOptionsConflict, e -> {
+                    logger.info("Actualizando la retención de notificaciones a {} días.", retentionDays);
+                    Document collMod = new Document("collMod", reactiveMongoTemplate.getCollectionName(Notification.class))
+                            .append("index", new Document("name", TTL_INDEX_NAME)
+                                    .append("expireAfterSeconds", Duration.ofDays(retentionDays).toSeconds()));
+                    return reactiveMongoTemplate.executeCommand(collMod).thenReturn(TTL_INDEX_NAME);
+                });
+    }
+
+    /**
+     * Indica si el error (o alguna de sus causas) es un IndexOptionsConflict de MongoDB.
+     */
+    private static boolean isIndexOptionsConflict(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoCommandException commandException
+                    && commandException.getErrorCode() == INDEX_OPTIONS_CONFLICT) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -55,8 +55,9 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable()) // Las APIs REST no suelen necesitar CSRF
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS)) // Sin sesiones
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/api/tickets").hasRole("USER") // Solo USER
-                        .requestMatchers("/api/admin").hasRole("ADMIN") // Solo ADMIN
+                        .requestMatchers("/api/tickets", "/api/tickets/**").hasRole("USER") // Solo USER
+                        .requestMatchers("/api/products", "/api/products/**").hasRole("USER") // Solo USER
+                        .requestMatchers("/api/admin", "/api/admin/**").hasRole("ADMIN") // Solo ADMIN
                         .requestMatchers(
                                 "/api/regions",
                                 "/api/provinces",
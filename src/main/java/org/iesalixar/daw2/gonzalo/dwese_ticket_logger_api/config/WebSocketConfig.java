@@ -1,26 +1,36 @@
 package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.config;
 
-import io.jsonwebtoken.Claims;
-import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.CustomUserDetailsService;
-import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.utils.JwtUtil;
+import jakarta.annotation.PostConstruct;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.WebSocketMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.socket.config.WebSocketMessageBrokerStats;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
-import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Configuración de WebSockets con autenticación basada en JWT.
@@ -34,10 +44,87 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     private static final Logger logger = LoggerFactory.getLogger(WebSocketConfig.class);
 
     @Autowired
-    private JwtUtil jwtUtil;
+    private JwtAuthenticationResolver jwtAuthenticationResolver; // Verifica el token JWT y construye la autenticación.
 
+    // Configuración del broker STOMP externo (relay). Desactivado por defecto: se usa el broker simple en memoria.
+    @Value("${websocket.broker.relay.enabled:false}")
+    private boolean relayEnabled;
+
+    @Value("${websocket.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${websocket.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${websocket.broker.relay.client-login:ticketlogger}")
+    private String relayClientLogin;
+
+    @Value("${websocket.broker.relay.client-passcode:ticketlogger}")
+    private String relayClientPasscode;
+
+    @Value("${websocket.broker.relay.system-login:ticketlogger}")
+    private String relaySystemLogin;
+
+    @Value("${websocket.broker.relay.system-passcode:ticketlogger}")
+    private String relaySystemPasscode;
+
+    // Intervalo de heartbeat del broker en milisegundos (0 lo desactiva)
+    @Value("${websocket.broker.heartbeat-millis:10000}")
+    private long heartbeatMillis;
+
+    // Planificador que Spring crea para el broker; se usa para enviar los heartbeats
     @Autowired
-    private CustomUserDetailsService userDetailsService; // Servicio para cargar detalles del usuario.
+    @Lazy
+    @Qualifier("messageBrokerTaskScheduler")
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    // Pools de hilos de los canales de entrada y salida de los clientes
+    @Value("${websocket.channel.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    @Value("${websocket.channel.inbound.core-pool-size:8}")
+    private int inboundCorePoolSize;
+
+    @Value("${websocket.channel.inbound.max-pool-size:32}")
+    private int inboundMaxPoolSize;
+
+    @Value("${websocket.channel.inbound.queue-capacity:1000}")
+    private int inboundQueueCapacity;
+
+    @Value("${websocket.channel.outbound.core-pool-size:8}")
+    private int outboundCorePoolSize;
+
+    @Value("${websocket.channel.outbound.max-pool-size:32}")
+    private int outboundMaxPoolSize;
+
+    @Value("${websocket.channel.outbound.queue-capacity:5000}")
+    private int outboundQueueCapacity;
+
+    // Ejecutores de los canales y registro de sus métricas
+    @Autowired
+    private WebSocketMetrics webSocketMetrics;
+
+    private ThreadPoolTaskExecutor inboundExecutor;
+    private ThreadPoolTaskExecutor outboundExecutor;
+
+    // Límites de envío por sesión: protegen al resto de clientes de los consumidores lentos
+    @Value("${websocket.transport.send-time-limit-millis:10000}")
+    private int sendTimeLimitMillis;
+
+    @Value("${websocket.transport.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${websocket.transport.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    // Periodo (en segundos) con el que Spring registra en el log las métricas de WebSockets (0 lo desactiva)
+    @Value("${websocket.metrics.log-period-seconds:60}")
+    private long metricsLogPeriodSeconds;
+
+    // Métricas de sesiones, canales y broker que Spring crea junto con el broker de mensajes
+    @Autowired
+    @Lazy
+    private WebSocketMessageBrokerStats webSocketMessageBrokerStats;
 
     /**
      * Registra el punto de conexión WebSocket en "/ws"-
@@ -55,58 +142,81 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     /**
      * Configura el broker de mensajes para manejar la comunicación WebSocket.
      * Se habilitan tópicos para mensajes generales y privados.
+     * <p>
+     * Por defecto se usa el broker simple en memoria, limitado a una sola instancia de la API.
+     * Si se activa {@code websocket.broker.relay.enabled}, los mensajes se reenvían a un broker
+     * STOMP externo (RabbitMQ, ActiveMQ...) compartido por todas las instancias, de modo que las
+     * suscripciones a "/topic/notifications" y "/user/queue/**" funcionan entre nodos.
      *
      * @param registry Registro de configuración del broker de mensajes.
      */
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry){
-        registry.enableSimpleBroker("/queue", "/topic"); // Canales de comunicación
+        if (relayEnabled) {
+            logger.info("Usando el broker STOMP externo en {}:{}", relayHost, relayPort);
+            registry.enableStompBrokerRelay("/queue", "/topic") // Canales de comunicación
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayClientLogin)
+                    .setClientPasscode(relayClientPasscode)
+                    .setSystemLogin(relaySystemLogin)
+                    .setSystemPasscode(relaySystemPasscode)
+                    .setSystemHeartbeatSendInterval(heartbeatMillis)
+                    .setSystemHeartbeatReceiveInterval(heartbeatMillis)
+                    // Comparte entre nodos los mensajes a usuarios conectados a otra instancia y el registro de usuarios
+                    .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                    .setUserRegistryBroadcast("/topic/simp-user-registry");
+        } else {
+            var simpleBroker = registry.enableSimpleBroker("/queue", "/topic"); // Canales de comunicación
+            if (heartbeatMillis > 0) {
+                // Los heartbeats permiten detectar y cerrar las conexiones muertas
+                simpleBroker.setHeartbeatValue(new long[]{heartbeatMillis, heartbeatMillis})
+                        .setTaskScheduler(messageBrokerTaskScheduler);
+            }
+        }
         registry.setUserDestinationPrefix("/user"); // Permite enviar mensajes privados a usuarios específicos
     }
 
     /**
      *
      * Interceptor para manejar la autenticación basada en JWT en los mensajes entrantes de WebSockets.
+     * El token solo se valida en el frame CONNECT: el usuario queda asociado a la sesión WebSocket
+     * y Spring lo añade automáticamente a los frames posteriores (SEND, SUBSCRIBE...), que no
+     * necesitan volver a autenticarse.
      * @param registration Registro del canal de entrada del cliente.
      */
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.executor(inboundExecutor);
         registration.interceptors(new ChannelInterceptor() {
             @Override
             public Message<?> preSend(Message<?> message, MessageChannel channel) {
-                StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+                // Se obtiene el accessor mutable del mensaje para que el usuario asignado llegue a la sesión
+                StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+
+                // Solo se autentica el frame de conexión; el resto reutiliza el usuario de la sesión
+                if (accessor == null || !isConnectFrame(accessor.getCommand())) {
+                    return message;
+                }
+
                 String token = accessor.getFirstNativeHeader("Authorization");
 
                 logger.info("⚡ WebSocket intentando autenticar...");
 
                 if (token != null && token.startsWith("Bearer ")) {
                     token = token.substring(7);
-                    String username = jwtUtil.extractUsername(token);
-                    logger.info("📝 Token recibido en WebSocket: " + token);
-                    logger.info("👤 Usuario extraído del token: " + username);
-
-                    if (jwtUtil.validateToken(token, username)) {
-                        var userDetails = userDetailsService.loadUserByUsername(username);
-                        Claims claims = jwtUtil.extractAllClaims(token);
-                        List<String> roles = claims.get("roles", List.class);
-
-                        logger.info("✅ Usuario autenticado en WebSocket: " + username + " con roles: " + roles);
-
-                        List<SimpleGrantedAuthority> authorities = roles.stream()
-                                .map(SimpleGrantedAuthority::new)
-                                .toList();
+                    // Se verifica el token una única vez y se construye la autenticación
+                    Optional<UsernamePasswordAuthenticationToken> authToken = jwtAuthenticationResolver.resolve(token);
 
-                        UsernamePasswordAuthenticationToken authToken =
-                                new UsernamePasswordAuthenticationToken(userDetails, null, authorities);
+                    if (authToken.isPresent()) {
+                        logger.info("✅ Usuario autenticado en WebSocket: " + authToken.get().getName()
+                                + " con roles: " + authToken.get().getAuthorities());
 
-                        // Asocia la autenticación al contexto de seguridad de Spring
-                        SecurityContextHolder.getContext().setAuthentication(authToken);
-
-                        // Asocia la autenticación al WebSocket
-                        accessor.setUser(authToken);
+                        // Asocia la autenticación a la sesión WebSocket
+                        accessor.setUser(authToken.get());
                     } else {
-                        logger.warn("❌ Token inválido en WebSocket para el usuario: " + username);
+                        logger.warn("❌ Token inválido en WebSocket.");
                     }
                 } else {
                     logger.warn("⚠️ No se encontró un token en la conexión WebSocket.");
@@ -117,4 +227,90 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         });
     }
 
+    /**
+     * Configura el pool de hilos del canal de salida, que entrega los mensajes del broker a cada sesión.
+     *
+     * @param registration Registro del canal de salida del cliente.
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.executor(outboundExecutor);
+    }
+
+    /**
+     * Configura los límites de transporte de cada sesión WebSocket.
+     * Si un cliente lento supera el tiempo de envío o el tamaño del buffer, se cierra su sesión
+     * en lugar de bloquear el envío de mensajes al resto de clientes.
+     *
+     * @param registration Registro de la configuración de transporte.
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMillis)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit);
+    }
+
+    /**
+     * Crea los ejecutores de los canales de entrada y salida y los registra en {@link WebSocketMetrics}.
+     * Ambos usan un pool acotado (de hilos virtuales o de plataforma) con una cola de tamaño fijo y
+     * una política explícita para cuando la cola se llena, de modo que un cliente lento nunca
+     * bloquea la difusión al resto:
+     * <ul>
+     *     <li>Entrada: el mensaje se procesa en el hilo del cliente que lo envía.</li>
+     *     <li>Salida: el mensaje se descarta y se cuenta.</li>
+     * </ul>
+     */
+    @PostConstruct
+    public void initChannelExecutors() {
+        inboundExecutor = createChannelExecutor("ws-inbound-", inboundCorePoolSize, inboundMaxPoolSize,
+                inboundQueueCapacity, webSocketMetrics.inboundRejectionHandler());
+        outboundExecutor = createChannelExecutor("ws-outbound-", outboundCorePoolSize, outboundMaxPoolSize,
+                outboundQueueCapacity, webSocketMetrics.outboundRejectionHandler());
+        webSocketMetrics.registerExecutors(inboundExecutor, outboundExecutor);
+    }
+
+    /**
+     * Crea el ejecutor de un canal de mensajes. Spring lo inicializa y lo cierra al registrarlo
+     * como ejecutor del canal.
+     *
+     * @param threadPrefix     Prefijo del nombre de los hilos.
+     * @param corePoolSize     Número de hilos base.
+     * @param maxPoolSize      Número máximo de hilos.
+     * @param queueCapacity    Capacidad de la cola de mensajes pendientes.
+     * @param rejectionHandler Política que se aplica cuando la cola está llena.
+     * @return el ejecutor configurado.
+     */
+    private ThreadPoolTaskExecutor createChannelExecutor(String threadPrefix, int corePoolSize, int maxPoolSize,
+                                                         int queueCapacity, RejectedExecutionHandler rejectionHandler) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(threadPrefix);
+        executor.setVirtualThreads(virtualThreads);
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(rejectionHandler);
+        return executor;
+    }
+
+    /**
+     * Ajusta el periodo con el que {@link WebSocketMessageBrokerStats} registra en el log las sesiones
+     * abiertas, las cerradas por clientes lentos, los errores de transporte y el estado de los canales
+     * y del broker. Al cambiarlo una vez arrancada la aplicación se vuelve a programar el registro.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void configureMetricsLogging() {
+        webSocketMessageBrokerStats.setLoggingPeriod(TimeUnit.SECONDS.toMillis(metricsLogPeriodSeconds));
+    }
+
+    /**
+     * Indica si el comando STOMP corresponde a la apertura de la conexión.
+     *
+     * @param command comando del frame recibido.
+     * @return true si es un frame CONNECT (o su alias STOMP).
+     */
+    private static boolean isConnectFrame(StompCommand command) {
+        return StompCommand.CONNECT.equals(command) || StompCommand.STOMP.equals(command);
+    }
+
 }
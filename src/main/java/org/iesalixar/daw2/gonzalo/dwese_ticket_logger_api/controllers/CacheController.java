@@ -0,0 +1,32 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.controllers;
+
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.CacheStatsDTO;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.CacheRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Controlador REST de administración que expone las estadísticas de las cachés en memoria.
+ */
+@RestController
+@RequestMapping("/api/admin/caches")
+public class CacheController {
+
+    @Autowired
+    private CacheRegistry cacheRegistry;
+
+    /**
+     * Obtiene las estadísticas (tamaño, aciertos, fallos, expulsiones y tasa de aciertos) de cada caché.
+     *
+     * @return ResponseEntity con la lista de estadísticas.
+     */
+    @GetMapping
+    public ResponseEntity<List<CacheStatsDTO>> getCacheStats() {
+        return ResponseEntity.ok(cacheRegistry.getStats());
+    }
+}
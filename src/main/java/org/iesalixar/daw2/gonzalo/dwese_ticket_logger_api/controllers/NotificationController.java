@@ -1,13 +1,35 @@
 package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.controllers;
 
 
+import jakarta.servlet.http.HttpServletRequest;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.NotificationBulkResultDTO;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.NotificationCreateDTO;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.NotificationDTO;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.NotificationReadResultDTO;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.DataVersionTracker;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.NotificationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.time.Instant;
+import java.util.List;
 
 /**
  * Controlador REST para gestionar las notificaciones en la aplicación.
@@ -18,17 +40,131 @@ import reactor.core.publisher.Mono;
 @RequestMapping("/ws/notifications")
 public class NotificationController {
 
+    private static final Logger logger = LoggerFactory.getLogger(NotificationController.class);
+
+    // Cabecera con el cursor de la siguiente página de notificaciones
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private DataVersionTracker dataVersionTracker;
+
+    // Tamaño de página por defecto y máximo permitido al listar notificaciones
+    @Value("${notifications.read.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${notifications.read.max-page-size:500}")
+    private int maxPageSize;
+
     /**
-     * Obtiene todas las notificaciones almacenadas en la base de datos.
+     * Obtiene una página de notificaciones, de la más reciente a la más antigua.
+     * Si hay más resultados, el cursor de la siguiente página se devuelve en la cabecera "X-Next-Cursor".
      *
-     * @return Un Flux con la lista de todas las notificaciones en formato DTO.
+     * @param principal usuario autenticado; solo recibe las notificaciones generales y las suyas.
+     * @param read   filtro opcional por estado de lectura.
+     * @param cursor cursor de la página anterior; se omite para obtener la primera.
+     * @param limit  número máximo de notificaciones a devolver.
+     * @return Un Mono con la lista de notificaciones en formato DTO.
      */
     @GetMapping
-    public Flux<NotificationDTO> getAllNotifications() {
-        return notificationService.getAllNotifications();
+    public Mono<ResponseEntity<List<NotificationDTO>>> getNotifications(
+            Principal principal,
+            @RequestParam(required = false) Boolean read,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            WebRequest webRequest) {
+        String username = usernameOf(principal);
+        // Cada usuario ve notificaciones distintas: el ETag incluye el usuario y la respuesta varía según Authorization
+        if (webRequest.checkNotModified(dataVersionTracker.getETag(DataVersionTracker.NOTIFICATIONS, username),
+                dataVersionTracker.getLastModified(DataVersionTracker.NOTIFICATIONS))) {
+            return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .varyBy(HttpHeaders.AUTHORIZATION)
+                    .<List<NotificationDTO>>build());
+        }
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        return notificationService.getNotificationsPage(username, read, cursor, pageSize)
+                .map(page -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok().varyBy(HttpHeaders.AUTHORIZATION);
+                    if (page.nextCursor() != null) {
+                        response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+                    }
+                    return response.body(page.content());
+                })
+                .onErrorResume(IllegalArgumentException.class, e -> {
+                    logger.warn("Petición de notificaciones con cursor no válido: {}", cursor);
+                    return Mono.just(ResponseEntity.badRequest().build());
+                });
+    }
+
+    /**
+     * Obtiene en streaming todas las notificaciones, de la más reciente a la más antigua,
+     * en formato NDJSON o Server-Sent Events. La lectura de MongoDB avanza al ritmo del cliente.
+     *
+     * @param principal usuario autenticado; solo recibe las notificaciones generales y las suyas.
+     * @param read      filtro opcional por estado de lectura.
+     * @return Un Flux con las notificaciones en formato DTO.
+     */
+    @GetMapping(value = "/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<NotificationDTO> streamNotifications(Principal principal,
+                                                     @RequestParam(required = false) Boolean read) {
+        return notificationService.streamNotifications(usernameOf(principal), read);
+    }
+
+    /**
+     * Obtiene las notificaciones que el cliente se ha perdido desde la última que recibió,
+     * de la más antigua a la más reciente. Pensado para los clientes WebSocket que se reconectan.
+     *
+     * @param principal  usuario autenticado; solo recibe las notificaciones generales y las suyas.
+     * @param lastSeenId identificador de la última notificación recibida (cabecera "Last-Seen-Id").
+     * @param limit      número máximo de notificaciones a devolver.
+     * @return Un Mono con las notificaciones perdidas, o 404 si la notificación indicada no existe.
+     */
+    @GetMapping("/replay")
+    public Mono<ResponseEntity<List<NotificationDTO>>> replayNotifications(
+            Principal principal,
+            @RequestHeader("Last-Seen-Id") String lastSeenId,
+            @RequestParam(required = false) Integer limit) {
+        int pageSize = limit == null ? maxPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        return notificationService.getMissedNotifications(usernameOf(principal), lastSeenId, pageSize)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Marca como leídas para el usuario autenticado las notificaciones indicadas.
+     *
+     * @param principal usuario autenticado; solo puede marcar las notificaciones generales y las suyas.
+     * @param ids       identificadores de las notificaciones a marcar.
+     * @return Un Mono con el número de notificaciones marcadas, o 401 si la petición es anónima.
+     */
+    @PatchMapping("/read")
+    public Mono<ResponseEntity<NotificationReadResultDTO>> markAsRead(Principal principal,
+                                                                      @RequestBody List<String> ids) {
+        String username = usernameOf(principal);
+        if (username == null) {
+            return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+        }
+        return notificationService.markAsRead(username, ids).map(ResponseEntity::ok);
+    }
+
+    /**
+     * Marca como leídas para el usuario autenticado todas las notificaciones creadas hasta la fecha indicada.
+     *
+     * @param principal usuario autenticado; solo puede marcar las notificaciones generales y las suyas.
+     * @param upTo      fecha límite de creación en formato ISO-8601; si se omite, se usa la fecha actual.
+     * @return Un Mono con el número de notificaciones marcadas, o 401 si la petición es anónima.
+     */
+    @PatchMapping("/read-all")
+    public Mono<ResponseEntity<NotificationReadResultDTO>> markAllAsRead(Principal principal,
+                                                                         @RequestParam(required = false) Instant upTo) {
+        String username = usernameOf(principal);
+        if (username == null) {
+            return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+        }
+        return notificationService.markAllAsRead(username, upTo == null ? Instant.now() : upTo)
+                .map(ResponseEntity::ok);
     }
 
     /**
@@ -41,4 +177,47 @@ public class NotificationController {
     public Mono<NotificationDTO> createNotification(@RequestBody NotificationCreateDTO notificationCreateDTO) {
         return notificationService.saveNotification(notificationCreateDTO);
     }
+
+    /**
+     * Crea varias notificaciones enviadas como un array JSON.
+     * Se insertan en MongoDB por lotes y se devuelve el resultado de cada una.
+     *
+     * @param notifications Lista de DTOs con las notificaciones a crear.
+     * @return Un Flux con el resultado de cada notificación, en el orden de entrada.
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<NotificationBulkResultDTO> createNotificationsBulk(@RequestBody List<NotificationCreateDTO> notifications) {
+        return notificationService.saveNotificationsBulk(Flux.fromIterable(notifications));
+    }
+
+    /**
+     * Crea varias notificaciones enviadas en formato NDJSON (un objeto JSON por línea).
+     * El cuerpo se lee línea a línea conforme se insertan los lotes, sin cargarlo entero en memoria.
+     *
+     * @param request Petición HTTP de la que se lee el cuerpo.
+     * @return Un Flux con el resultado de cada notificación, en el orden de entrada.
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<NotificationBulkResultDTO> createNotificationsNdjson(HttpServletRequest request) {
+        Flux<String> lines = Flux.using(
+                        () -> new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8)),
+                        reader -> Flux.fromStream(reader.lines()),
+                        reader -> {
+                            try {
+                                reader.close();
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        })
+                // La lectura del cuerpo es bloqueante
+                .subscribeOn(Schedulers.boundedElastic());
+        return notificationService.saveNotificationsNdjson(lines);
+    }
+
+    /**
+     * Obtiene el nombre del usuario autenticado, o null si la petición es anónima.
+     */
+    private String usernameOf(Principal principal) {
+        return principal == null ? null : principal.getName();
+    }
 }
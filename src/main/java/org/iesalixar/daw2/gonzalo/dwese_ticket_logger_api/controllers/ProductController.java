@@ -0,0 +1,60 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.controllers;
+
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.ProductDTO;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.ProductSearchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Controlador REST para buscar productos al introducir tickets.
+ */
+@RestController
+@RequestMapping("/api/products") // prefijo común para todas las rutas del controlador
+public class ProductController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductController.class);
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    /**
+     * Busca productos por nombre con paginación.
+     *
+     * @param query    Texto de búsqueda (palabras completas o prefijo del nombre).
+     * @param pageable Página, tamaño y ordenación solicitados.
+     * @return ResponseEntity con la página de productos o un error en caso de fallo.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<Page<ProductDTO>> searchProducts(
+            @RequestParam(value = "q", required = false) String query,
+            @PageableDefault(size = 20, sort = "name") Pageable pageable) {
+        try {
+            return ResponseEntity.ok(productSearchService.search(query, pageable));
+        } catch (Exception e) {
+            logger.error("Error al buscar productos con '{}': {}", query, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    /**
+     * Sugiere productos cuyo nombre o alguna de sus palabras empieza por el prefijo indicado.
+     *
+     * @param query Prefijo escrito por el usuario.
+     * @param limit Número máximo de sugerencias.
+     * @return ResponseEntity con la lista de sugerencias.
+     */
+    @GetMapping("/typeahead")
+    public ResponseEntity<List<ProductDTO>> typeahead(@RequestParam("q") String query,
+                                                      @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return ResponseEntity.ok(productSearchService.typeahead(query, limit));
+    }
+}
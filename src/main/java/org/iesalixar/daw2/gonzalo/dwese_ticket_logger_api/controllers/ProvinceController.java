@@ -1,9 +1,13 @@
 package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.controllers;
 
 
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.ProvinceCreateDTO;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.ProvinceDTO;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.Province;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.ProvinceRepository;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.FileStorageService;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.DataVersionTracker;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.ProvinceService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,12 +17,14 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
@@ -45,19 +51,33 @@ public class ProvinceController {
     private ProvinceRepository provinceRepository;
     @Autowired
     private FileStorageService fileStorageService;
+    @Autowired
+    private ProvinceService provinceService;
+    @Autowired
+    private DataVersionTracker dataVersionTracker;
 
     /**
      *
-     * Lista todas las provincias almacenadas en la base de datos.
+     * Lista las provincias almacenadas en la base de datos con paginación.
      *
-     * @return ResponseEntity con la lista de provincias o un error en caso de fallo.
+     * @param search   Texto opcional a buscar en el nombre de la provincia.
+     * @param pageable Página, tamaño y ordenación solicitados.
+     * @return ResponseEntity con la página de provincias o un error en caso de fallo.
      */
     @GetMapping()
-    public ResponseEntity<List<Province>> getAllProvinces() {
-        logger.info("Solicitando la lista de todas las provincias...");
+    public ResponseEntity<Page<ProvinceDTO>> getAllProvinces(@RequestParam(required = false) String search,
+                                                             @PageableDefault(size = 10, sort = "name") Pageable pageable,
+                                                             WebRequest webRequest) {
+        logger.info("Solicitando la lista de provincias con paginación: página {}, tamaño {}",
+                pageable.getPageNumber(), pageable.getPageSize());
+        // Si el cliente ya tiene la versión actual, se responde 304 sin consultar la base de datos
+        if (webRequest.checkNotModified(dataVersionTracker.getETag(DataVersionTracker.PROVINCES, null),
+                dataVersionTracker.getLastModified(DataVersionTracker.PROVINCES))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
         try {
-            List<Province> provinces = provinceRepository.findAll();
-            logger.info("Se han encontrado {} provincias.", provinces.size());
+            Page<ProvinceDTO> provinces = provinceService.getAllProvinces(search, pageable);
+            logger.info("Se han encontrado {} provincias.", provinces.getTotalElements());
             return ResponseEntity.ok(provinces);
         } catch (Exception e) {
             logger.error("Error al listar las provincias: {}", e.getMessage());
@@ -74,12 +94,12 @@ public class ProvinceController {
      */
 
     @GetMapping("/{id}")
-    public ResponseEntity<Province> getProvinceById(@PathVariable Long id) {
+    public ResponseEntity<ProvinceDTO> getProvinceById(@PathVariable Long id) {
         logger.info("Buscando provincia con ID {}", id);
         try {
-            Optional<Province> province = provinceRepository.findById(id);
+            Optional<ProvinceDTO> province = provinceService.getProvinceById(id);
             if (province.isPresent()) {
-                logger.info("Provincia con ID {} encontrada: {}", id, province.get());
+                logger.info("Provincia con ID {} encontrada.", id);
                 return ResponseEntity.ok(province.get());
             } else {
                 logger.warn("No se encontró ninguna provincia con ID {}", id);
@@ -125,24 +145,19 @@ public class ProvinceController {
     /**
      * Crea una nueva provincia en la base de datos.
      *
-     * @param province Objeto JSON que representa la nueva provincia.
+     * @param provinceCreateDTO Objeto JSON que representa la nueva provincia.
      * @param locale Idioma de los mensajes de error.
      * @return ResponseEntity con la provincia creada o un mensaje de error.
      */
     @PostMapping
-    public ResponseEntity<?> createProvince(@Valid @RequestBody Province province, Locale locale){
-        logger.info("Insertando nueva provincia con código {}", province.getCode());
+    public ResponseEntity<?> createProvince(@Valid @RequestBody ProvinceCreateDTO provinceCreateDTO, Locale locale){
+        logger.info("Insertando nueva provincia con código {}", provinceCreateDTO.getCode());
         try {
-            // Validar si el código ya existe
-            if (provinceRepository.existsProvinceByCode(province.getCode())) {
-                String errorMessage = messageSource.getMessage("msg.province-controller.insert.codeExist", null, locale);
-                logger.warn("Error al crear provincia: {}", errorMessage);
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorMessage);
-            }
-            // Guardar la nueva provincia
-            Province savedProvince = provinceRepository.save(province);
-            logger.info("Provincia creada exitosamente con ID {}", savedProvince.getId());
-            return ResponseEntity.status(HttpStatus.CREATED).body(savedProvince);
+            ProvinceDTO createdProvince = provinceService.createProvince(provinceCreateDTO, locale);
+            return ResponseEntity.status(HttpStatus.CREATED).body(createdProvince);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error al crear provincia: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (Exception e) {
             logger.error("Error al crear la provincia: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al crear la provincia.");
@@ -153,33 +168,21 @@ public class ProvinceController {
      * Actualiza una provincia existente por su ID.
      *
      * @param id ID de la provincia a actualizar.
-     * @param province Objeto JSON con los nuevos datos.
+     * @param provinceCreateDTO Objeto JSON con los nuevos datos.
      * @param locale Idioma de los mensajes de error.
      * @return ResponseEntity con la provincia actualizada o un mensaje de error.
      *
      */
 
     @PutMapping("/{id}")
-    public ResponseEntity<?> updateProvince (@PathVariable Long id, @Valid @RequestBody Province province, Locale locale){
+    public ResponseEntity<?> updateProvince (@PathVariable Long id, @Valid @RequestBody ProvinceCreateDTO provinceCreateDTO, Locale locale){
         logger.info("Actualizando provincia con ID {}", id);
         try{
-            // Verificar si la provincia existe
-            Optional<Province> existingProvince = provinceRepository.findById(id);
-            if (!existingProvince.isPresent()) {
-                logger.warn("No se encontró ninguna provincia con ID {}", id);
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("La provincia no existe.");
-            }
-            // Validar si el código ya pertenece a otra provincia
-            if(provinceRepository.existsProvinceByCodeAndNotId(province.getCode(),id)){
-                String errorMessage = messageSource.getMessage("msg.province-controller.update.codeExist", null, locale);
-                logger.warn("Error al actualizar provincia: {}", errorMessage);
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorMessage);
-            }
-            //Actualizar la provincia
-            province.setId(id); // Asegurarse de que el ID no cambie
-            Province updateProvince =  provinceRepository.save(province);
-            logger.info("Provincia con ID {} actualizada exitosamente.", id);
-            return ResponseEntity.ok(updateProvince);
+            ProvinceDTO updatedProvince = provinceService.updateProvince(id, provinceCreateDTO, locale);
+            return ResponseEntity.ok(updatedProvince);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error al actualizar la provincia con ID {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (Exception e) {
             logger.error("Error al actualizar la provincia con ID {}: {}", id, e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al actualizar la provincia.");
@@ -197,15 +200,11 @@ public class ProvinceController {
     public ResponseEntity<?> deleteProvince(@PathVariable Long id){
         logger.info("Eliminando provincia con ID {}", id);
         try {
-            // Verificar si la provincia existe
-            if (!provinceRepository.existsById(id)) {
-                logger.warn("No se encontró ninguna provincia con ID {}", id);
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("La provincia no existe.");
-            }
-            // Eliminar la provincia
-            provinceRepository.deleteById(id);
-            logger.info("Provincia con ID {} eliinada exitosamente.", id);
+            provinceService.deleteProvince(id);
             return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error al eliminar la provincia con ID {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
         } catch (Exception e) {
             logger.error("Error al eliminar la provincia con ID {}: {}", id, e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al elimninar la provincia.");
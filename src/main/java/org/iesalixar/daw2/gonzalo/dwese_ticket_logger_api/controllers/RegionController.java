@@ -14,6 +14,7 @@ import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.mappers.RegionMapper;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.RegionRepository;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.FileStorageService;
 import jakarta.validation.Valid;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.DataVersionTracker;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.RegionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,6 +31,7 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
@@ -50,6 +52,9 @@ public class RegionController {
     @Autowired
     private RegionService regionService;
 
+    @Autowired
+    private DataVersionTracker dataVersionTracker;
+
     @Autowired
     private RegionMapper regionMapper;
 
@@ -70,9 +75,15 @@ public class RegionController {
             @ApiResponse(responseCode = "500", description = "Error interno del servidor")
     })
     @GetMapping()
-    public ResponseEntity<Page<RegionDTO>> getAllRegions(@PageableDefault(size = 10, sort = "name") Pageable pageable){
+    public ResponseEntity<Page<RegionDTO>> getAllRegions(@PageableDefault(size = 10, sort = "name") Pageable pageable,
+                                                         WebRequest webRequest){
         logger.info("Solicitando la lista de todas las regiones con paginación: página {}, tamaño {}",
                 pageable.getPageNumber(), pageable.getPageSize());
+        // Si el cliente ya tiene la versión actual, se responde 304 sin consultar la base de datos
+        if (webRequest.checkNotModified(dataVersionTracker.getETag(DataVersionTracker.REGIONS, null),
+                dataVersionTracker.getLastModified(DataVersionTracker.REGIONS))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
         try {
             Page<RegionDTO> regions = regionService.getAllRegions(pageable);
             logger.info("Se han encontrado {} regiones.", regions.getTotalElements());
@@ -0,0 +1,123 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.controllers;
+
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.TicketDTO;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.TicketSummaryDTO;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.TicketTotalsDTO;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.TicketService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Optional;
+
+/**
+ * Controlador REST que expone los tickets junto con sus productos.
+ */
+@RestController
+@RequestMapping("/api/tickets") // prefijo común para todas las rutas del controlador
+public class TicketController {
+
+    private static final Logger logger = LoggerFactory.getLogger(TicketController.class);
+
+    @Autowired
+    private TicketService ticketService;
+
+    /**
+     * Lista los tickets con paginación, incluyendo sus productos y el total.
+     *
+     * @param pageable Página, tamaño y ordenación solicitados.
+     * @return ResponseEntity con la página de tickets o un error en caso de fallo.
+     */
+    @GetMapping
+    public ResponseEntity<Page<TicketDTO>> getAllTickets(
+            @PageableDefault(size = 10, sort = "date", direction = Sort.Direction.DESC) Pageable pageable) {
+        logger.info("Solicitando la lista de tickets con paginación: página {}, tamaño {}",
+                pageable.getPageNumber(), pageable.getPageSize());
+        try {
+            return ResponseEntity.ok(ticketService.getAllTickets(pageable));
+        } catch (Exception e) {
+            logger.error("Error al listar los tickets: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    /**
+     * Lista los totales de los tickets (número de productos, subtotal y total con descuento)
+     * calculados en la base de datos, sin cargar los productos.
+     *
+     * @param pageable Página, tamaño y ordenación solicitados.
+     * @return ResponseEntity con la página de totales o un error en caso de fallo.
+     */
+    @GetMapping("/totals")
+    public ResponseEntity<Page<TicketTotalsDTO>> getTicketTotals(
+            @PageableDefault(size = 50, sort = "ticketId") Pageable pageable) {
+        try {
+            return ResponseEntity.ok(ticketService.getTicketTotals(pageable));
+        } catch (Exception e) {
+            logger.error("Error al calcular los totales de los tickets: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    /**
+     * Obtiene los totales agregados de todos los tickets.
+     *
+     * @return ResponseEntity con el resumen o un error en caso de fallo.
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<TicketSummaryDTO> getTicketSummary() {
+        try {
+            return ResponseEntity.ok(ticketService.getTicketSummary());
+        } catch (Exception e) {
+            logger.error("Error al calcular el resumen de los tickets: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    /**
+     * Obtiene los totales de un ticket calculados en la base de datos.
+     *
+     * @param id ID del ticket solicitado.
+     * @return ResponseEntity con los totales o 404 si el ticket no existe.
+     */
+    @GetMapping("/{id}/totals")
+    public ResponseEntity<TicketTotalsDTO> getTicketTotalsById(@PathVariable Long id) {
+        try {
+            return ticketService.getTicketTotalsById(id)
+                    .map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(null));
+        } catch (Exception e) {
+            logger.error("Error al calcular los totales del ticket con ID {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    /**
+     * Obtiene un ticket específico por su ID, incluyendo sus productos.
+     *
+     * @param id ID del ticket solicitado.
+     * @return ResponseEntity con el ticket encontrado o 404 si no existe.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<TicketDTO> getTicketById(@PathVariable Long id) {
+        logger.info("Buscando ticket con ID {}", id);
+        try {
+            Optional<TicketDTO> ticket = ticketService.getTicketById(id);
+            if (ticket.isPresent()) {
+                return ResponseEntity.ok(ticket.get());
+            }
+            logger.warn("No se encontró ningún ticket con ID {}", id);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        } catch (Exception e) {
+            logger.error("Error al buscar el ticket con ID {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+}
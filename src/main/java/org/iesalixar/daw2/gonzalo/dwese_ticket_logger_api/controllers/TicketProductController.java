@@ -1,13 +1,20 @@
 package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.controllers;
 
 import jakarta.validation.Valid;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.ProductDTO;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.*;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.*;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.ProductSearchService;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.TicketService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -30,7 +37,14 @@ public class TicketProductController {
     private TicketRepository ticketRepository;
 
     @Autowired
-    private ProductRepository productRepository;
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private TicketService ticketService;
+
+    // Número máximo de resultados de la búsqueda de productos en el detalle del ticket
+    @Value("${products.search.form-limit:20}")
+    private int searchFormLimit;
 
     //@Autowired
     //private LocationRepository locationRepository;
@@ -55,7 +69,8 @@ public class TicketProductController {
         logger.info("Solicitando la lista de todos los tickets...");
         List<Ticket> listTickets = null;
         try {
-            listTickets = ticketRepository.findAll();
+            // Se cargan los productos en la misma consulta para no lanzar una consulta por ticket
+            listTickets = ticketRepository.findAllWithProducts();
             logger.info("Se han cargado {} tickets.", listTickets.size());
         } catch (Exception e) {
             logger.error("Error al listar los tickets: {}", e.getMessage());
@@ -68,16 +83,19 @@ public class TicketProductController {
     /**
      * Muestra el formulario para crear un nuevo ticket.
      *
+     * @param productSearch Texto para filtrar el selector de productos (opcional).
+     * @param productPage   Página del selector de productos.
      * @param model Modelo para pasar datos a la vista.
      * @return El nombre de la plantilla Thymeleaf para el formulario de ticket.
      */
     @GetMapping("/new")
-    public String showNewForm(Model model) {
+    public String showNewForm(@RequestParam(value = "productSearch", required = false) String productSearch,
+                              @RequestParam(value = "productPage", defaultValue = "0") int productPage,
+                              Model model) {
         logger.info("Mostrando formulario para nuevo ticket.");
-        List<Product> listProducts = productRepository.findAll();
         // List<Location> listLocations = locationRepository.findAll();
         model.addAttribute("ticket", new Ticket());
-        model.addAttribute("listProducts", listProducts);
+        addProductOptions(model, productSearch, productPage);
        // model.addAttribute("listLocations", listLocations);
         return "ticket-form.html";
     }
@@ -87,6 +105,8 @@ public class TicketProductController {
      *
      * @param ticket             Ticket a insertar.
      * @param result             Resultado de la validación del ticket.
+     * @param productSearch      Texto para filtrar el selector de productos (opcional).
+     * @param productPage        Página del selector de productos.
      * @param redirectAttributes Atributos para mensajes flash.
      * @param locale             Localización para mensajes de error.
      * @param model              Modelo para pasar datos a la vista.
@@ -96,13 +116,14 @@ public class TicketProductController {
     @PostMapping("/insert")
     public String insertTicket(@Valid @ModelAttribute("ticket") Ticket ticket,
                                BindingResult result,
+                               @RequestParam(value = "productSearch", required = false) String productSearch,
+                               @RequestParam(value = "productPage", defaultValue = "0") int productPage,
                                RedirectAttributes redirectAttributes, Locale
                                        locale, Model model) {
         logger.info("Insertando nuevo ticket con fecha {}", ticket.getDate());
         try {
             if (result.hasErrors()) {
-                List<Product> listProducts = productRepository.findAll();
-                model.addAttribute("listProducts", listProducts);
+                addProductOptions(model, productSearch, productPage);
                 return "ticket-form.html";
             }
             ticketRepository.save(ticket);
@@ -118,12 +139,17 @@ public class TicketProductController {
     /**
      * Muestra el formulario para editar un ticket existente.
      *
-     * @param id    ID del ticket a editar.
+     * @param id            ID del ticket a editar.
+     * @param productSearch Texto para filtrar el selector de productos (opcional).
+     * @param productPage   Página del selector de productos.
      * @param model Modelo para pasar datos a la vista.
      * @return El nombre de la plantilla Thymeleaf para el formulario de ticket.
      */
     @GetMapping("/edit")
-    public String showEditForm(@RequestParam("id") Long id, Model model) {
+    public String showEditForm(@RequestParam("id") Long id,
+                               @RequestParam(value = "productSearch", required = false) String productSearch,
+                               @RequestParam(value = "productPage", defaultValue = "0") int productPage,
+                               Model model) {
         logger.info("Mostrando formulario de edición para el ticket con ID {}",
                 id);
         Optional<Ticket> ticket = ticketRepository.findById(id);
@@ -131,10 +157,9 @@ public class TicketProductController {
             logger.warn("No se encontró el ticket con ID {}", id);
             return "redirect:/tickets";
         }
-        List<Product> listProducts = productRepository.findAll();
        // List<Location> listLocations = locationRepository.findAll();
         model.addAttribute("ticket", ticket.get());
-        model.addAttribute("listProducts", listProducts);
+        addProductOptions(model, productSearch, productPage);
         //model.addAttribute("listLocations", listLocations);
         return "ticket-form.html";
     }
@@ -144,6 +169,8 @@ public class TicketProductController {
      *
      * @param ticket             Ticket a actualizar.
      * @param result             Resultado de la validación del ticket.
+     * @param productSearch      Texto para filtrar el selector de productos (opcional).
+     * @param productPage        Página del selector de productos.
      * @param redirectAttributes Atributos para mensajes flash.
      * @param locale             Localización para mensajes de error.
      * @param model              Modelo para pasar datos a la vista.
@@ -153,13 +180,14 @@ public class TicketProductController {
     @PostMapping("/update")
     public String updateTicket(@Valid @ModelAttribute("ticket") Ticket ticket,
                                BindingResult result,
+                               @RequestParam(value = "productSearch", required = false) String productSearch,
+                               @RequestParam(value = "productPage", defaultValue = "0") int productPage,
                                RedirectAttributes redirectAttributes, Locale
                                        locale, Model model) {
         logger.info("Actualizando ticket con ID {}", ticket.getId());
         try {
             if (result.hasErrors()) {
-                List<Product> listProducts = productRepository.findAll();
-                model.addAttribute("listProducts", listProducts);
+                addProductOptions(model, productSearch, productPage);
                 return "ticket-form.html";
             }
             ticketRepository.save(ticket);
@@ -206,7 +234,7 @@ public class TicketProductController {
     @GetMapping("/detail")
     public String showTicketDetail(@RequestParam("id") Long id, Model model) {
         logger.info("Mostrando detalles para el ticket con ID {}", id);
-        Optional<Ticket> ticketOptional = ticketRepository.findById(id);
+        Optional<Ticket> ticketOptional = ticketRepository.findWithProductsById(id);
 
         if (ticketOptional.isEmpty()) {
             logger.warn("No se encontró el ticket con ID {}", id);
@@ -235,7 +263,9 @@ public class TicketProductController {
     public String searchProduct(@RequestParam("productSearch") String
                                         productSearch, @RequestParam("ticketId") Long ticketId, Model model) {
         logger.info("Buscando productos que coincidan con '{}'", productSearch);
-        List<Product> searchResults = productRepository.findByNameContainingIgnoreCase(productSearch);
+        List<ProductDTO> searchResults = productSearchService
+                .search(productSearch, PageRequest.of(0, searchFormLimit, Sort.by("name")))
+                .getContent();
         Optional<Ticket> ticketOpt = ticketRepository.findById(ticketId);
 
         if (ticketOpt.isPresent()) {
@@ -264,14 +294,7 @@ public class TicketProductController {
                                              redirectAttributes, Locale locale) {
         logger.info("Añadiendo producto con ID {} al ticket con ID {}", productId, ticketId);
         try {
-            Optional<Ticket> ticketOpt = ticketRepository.findById(ticketId);
-            Optional<Product> productOpt = productRepository.findById(productId);
-
-            if (ticketOpt.isPresent() && productOpt.isPresent()) {
-                Ticket ticket = ticketOpt.get();
-                Product product = productOpt.get();
-                ticket.getProducts().add(product);
-                ticketRepository.save(ticket);
+            if (ticketService.addProduct(ticketId, productId)) {
                 logger.info("Producto añadido con éxito.");
             } else {
                 logger.warn("No se encontró el ticket o el producto.");
@@ -307,32 +330,15 @@ public class TicketProductController {
                                         BigDecimal productPrice, RedirectAttributes redirectAttributes) {
         logger.info("Añadiendo nuevo producto '{}' con precio {} al ticket con ID {}", productName, productPrice, ticketId);
         try {
-            Optional<Ticket> ticketOpt = ticketRepository.findById(ticketId);
-
-            if (ticketOpt.isPresent()) {
-                Ticket ticket = ticketOpt.get();
-
-                // Verificar si ya existe un producto con el mismo nombre en el ticket
-                boolean productExists = ticket.getProducts().stream().anyMatch(product -> product.getName().equalsIgnoreCase(productName));
-
-                if (productExists) {
-                    logger.warn("El producto con nombre '{}' ya existe en el ticket con ID {}", productName, ticketId);
-                    redirectAttributes.addFlashAttribute("errorMessage", "El producto con el nombre especificado ya está asociado al ticket.");
-                } else {
-                    Product newProduct = new Product();
-                    newProduct.setName(productName);
-                    newProduct.setPrice(productPrice);
-                    productRepository.save(newProduct);
-
-                    ticket.getProducts().add(newProduct);
-                    ticketRepository.save(ticket);
-
-                    logger.info("Nuevo producto añadido con éxito.");
-                }
+            if (ticketService.addNewProduct(ticketId, productName, productPrice)) {
+                logger.info("Nuevo producto añadido con éxito.");
             } else {
                 logger.warn("No se encontró el ticket.");
                 redirectAttributes.addFlashAttribute("errorMessage", "No se pudo añadir el producto al ticket.");
             }
+        } catch (IllegalArgumentException e) {
+            logger.warn("El producto con nombre '{}' ya existe en el ticket con ID {}", productName, ticketId);
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
         } catch (Exception e) {
             logger.error("Error al añadir el nuevo producto al ticket: {}",
                     e.getMessage());
@@ -357,15 +363,7 @@ public class TicketProductController {
         logger.info("Eliminando producto con ID {} del ticket con ID {}",
                 productId, ticketId);
         try {
-            Optional<Ticket> ticketOpt = ticketRepository.findById(ticketId);
-            Optional<Product> productOpt =
-                    productRepository.findById(productId);
-
-            if (ticketOpt.isPresent() && productOpt.isPresent()) {
-                Ticket ticket = ticketOpt.get();
-                Product product = productOpt.get();
-                ticket.getProducts().remove(product);
-                ticketRepository.save(ticket);
+            if (ticketService.removeProduct(ticketId, productId)) {
                 logger.info("Producto eliminado con éxito.");
             } else {
                 logger.warn("No se encontró el ticket o el producto.");
@@ -378,4 +376,20 @@ public class TicketProductController {
         }
         return "redirect:/tickets/detail?id=" + ticketId;
     }
+
+    /**
+     * Añade al modelo una página de opciones del selector de productos (id, nombre y precio),
+     * en lugar del catálogo completo. "listProducts" contiene los productos de la página y
+     * "productOptions" la página con los datos de paginación.
+     *
+     * @param model         Modelo para pasar datos a la vista.
+     * @param productSearch Texto para filtrar los productos (opcional).
+     * @param productPage   Página solicitada.
+     */
+    private void addProductOptions(Model model, String productSearch, int productPage) {
+        Page<ProductDTO> productOptions = productSearchService.getProductOptions(productSearch, productPage);
+        model.addAttribute("listProducts", productOptions.getContent());
+        model.addAttribute("productOptions", productOptions);
+        model.addAttribute("productSearch", productSearch);
+    }
 }
@@ -1,10 +1,10 @@
 package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.controllers;
 
-import io.jsonwebtoken.Claims;
 import jakarta.validation.constraints.NotNull;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.UserDTO;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.UserService;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.utils.JwtUtil;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.utils.VerifiedJwt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,6 +19,8 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Optional;
+
 
 @RestController
 @RequestMapping("/api/users")
@@ -38,9 +40,15 @@ public class UserController {
     public ResponseEntity<@NotNull UserDTO> getUser(@RequestHeader("Authorization")String tokenheader){
         logger.info("Solicitando la información del usuario logueado");
 
-        String token = tokenheader.replace("Bearer", "");
+        String token = tokenheader.startsWith("Bearer ") ? tokenheader.substring(7) : tokenheader;
 
-        Long id = jwtUtil.extractClaim(token,claims -> claims.get("id", Long.class));
+        // Se verifica el token una única vez y se toma el id de sus claims
+        Optional<VerifiedJwt> verifiedJwt = jwtUtil.verify(token);
+        if (verifiedJwt.isEmpty() || verifiedJwt.get().id() == null) {
+            logger.warn("El token recibido no es válido o no contiene el identificador del usuario.");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
+        }
+        Long id = verifiedJwt.get().id();
 
         try {
             UserDTO userDTO = userService.getUserById(id);
@@ -0,0 +1,31 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.controllers;
+
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.WebSocketStatsDTO;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.WebSocketMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controlador REST de administración que expone las métricas de los WebSockets.
+ */
+@RestController
+@RequestMapping("/api/admin/websocket")
+public class WebSocketStatsController {
+
+    @Autowired
+    private WebSocketMetrics webSocketMetrics;
+
+    /**
+     * Obtiene las sesiones abiertas, las cerradas por clientes lentos y la ocupación y los
+     * rechazos de los canales de entrada y salida.
+     *
+     * @return ResponseEntity con las métricas actuales.
+     */
+    @GetMapping
+    public ResponseEntity<WebSocketStatsDTO> getWebSocketStats() {
+        return ResponseEntity.ok(webSocketMetrics.getStats());
+    }
+}
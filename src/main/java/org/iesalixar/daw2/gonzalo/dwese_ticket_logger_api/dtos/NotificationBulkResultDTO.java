@@ -0,0 +1,36 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Resultado de la inserción de una notificación dentro de una carga masiva.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationBulkResultDTO {
+
+    /**
+     * Posición (empezando en 0) de la notificación en la petición.
+     */
+    private long index;
+
+    /**
+     * Identificador asignado a la notificación, o null si no se ha insertado.
+     */
+    private String id;
+
+    /**
+     * Indica si la notificación se ha insertado correctamente.
+     */
+    private boolean created;
+
+    /**
+     * Motivo del fallo cuando la notificación no se ha insertado.
+     */
+    private String error;
+}
@@ -17,5 +17,5 @@ import lombok.Setter;
 public class NotificationCreateDTO {
     private String subject;
     private String message;
-    private boolean read;
+    private String recipient; // Usuario destinatario; si se omite, la notificación es para todos
 }
@@ -19,7 +19,8 @@ public class NotificationDTO {
     private String id;
     private String subject;
     private String message;
-    private boolean read;
+    private boolean read; // Si la ha leído el usuario que la consulta
     private Instant createdAt;
+    private String recipient;
 }
 
@@ -0,0 +1,26 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Resultado de marcar notificaciones como leídas.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationReadResultDTO {
+
+    /**
+     * Número de notificaciones sin leer que cumplían el criterio.
+     */
+    private long matched;
+
+    /**
+     * Número de notificaciones que se han marcado como leídas.
+     */
+    private long modified;
+}
@@ -0,0 +1,25 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+/**
+ * Clase DTO (Data Transfer Object) que representa un producto.
+ *
+ * Esta clase se utiliza para transferir datos de un producto
+ * entre las capas de la aplicación sin exponer sus relaciones.
+ *
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductDTO {
+    private Long id;
+    private String name;
+    private BigDecimal price;
+}
@@ -0,0 +1,39 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * DTO para la creación y actualización de una provincia.
+ * No incluye el ID, ya que se genera automáticamente.
+ */
+@Getter
+@Setter
+public class ProvinceCreateDTO {
+
+    /**
+     * Código único de la provincia.
+     *
+     * - No puede estar vacío ('@NotEmpty').
+     * - Longitud máxima de 2 caracteres ('@Size(max = 2)').
+     *
+     * Ejemplo: "23" para Jaén.
+     */
+    @NotEmpty(message = "{msg.province.code.notEmpty}")
+    @Size(max = 2, message = "{msg.province.code.size}")
+    private String code;
+
+    /**
+     * Nombre completo de la provincia.
+     *
+     * - No puede estar vacío ('@NotEmpty').
+     * - Longitud máxima de 100 caracteres ('@Size(max = 100)').
+     *
+     * Ejemplo: "Sevilla", "Jaén".
+     */
+    @NotEmpty(message = "{msg.province.name.notEmpty}")
+    @Size(max = 100, message = "{msg.province.name.size}")
+    private String name;
+}
@@ -0,0 +1,26 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Clase DTO (Data Transfer Object) que representa un ticket con sus productos.
+ *
+ * Esta clase se utiliza para transferir datos de un ticket
+ * entre las capas de la aplicación, especialmente para exponerlos
+ * a través de la API sin incluir información innecesaria o sensible.
+ *
+ */
+@Getter
+@Setter
+public class TicketDTO {
+    private Long id;
+    private Date date;
+    private BigDecimal discount;
+    private BigDecimal total; // Total de los productos con el descuento aplicado
+    private List<ProductDTO> products;
+}
@@ -0,0 +1,22 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+/**
+ * Totales agregados de todos los tickets.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketSummaryDTO {
+    private long ticketCount;
+    private long productCount;
+    private BigDecimal subtotal;
+    private BigDecimal total;
+}
@@ -0,0 +1,23 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+/**
+ * Totales de un ticket calculados sin cargar sus productos.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketTotalsDTO {
+    private Long ticketId;
+    private long productCount;
+    private BigDecimal subtotal;
+    private BigDecimal discount;
+    private BigDecimal total;
+}
@@ -0,0 +1,31 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Métricas de los WebSockets: sesiones abiertas, sesiones cerradas por clientes lentos y
+ * ocupación de los canales de entrada y salida.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class WebSocketStatsDTO {
+    private int openSessions;
+    // Sesiones cerradas por superar el tiempo de envío o el tamaño del buffer (clientes lentos)
+    private int slowSessionsClosed;
+    private int transportErrorSessions;
+    private int inboundQueueSize;
+    private int inboundActiveThreads;
+    // Mensajes de entrada procesados en el hilo del propio cliente por tener la cola llena
+    private long inboundCallerRuns;
+    private int outboundQueueSize;
+    private int outboundActiveThreads;
+    // Mensajes de salida descartados por tener la cola llena
+    private long outboundDropped;
+    // Notificaciones descartadas por tener lleno el buffer de difusión
+    private long notificationsDropped;
+}
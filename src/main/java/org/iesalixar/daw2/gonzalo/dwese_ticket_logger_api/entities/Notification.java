@@ -8,6 +8,8 @@ import lombok.Setter;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 @Getter
 @Setter
@@ -35,10 +37,11 @@ public class Notification {
     private String message;
 
     /**
-     * Indica si la notificación ha sido leída o no.
+     * Usuarios que han leído la notificación.
+     * El estado de lectura es de cada usuario: una notificación general leída por uno
+     * sigue sin leer para los demás.
      */
-
-    private boolean read;
+    private List<String> readBy = new ArrayList<>();
 
 
     /**
@@ -47,4 +50,10 @@ public class Notification {
      * Instant es el date de mysql pero en mongo.
      */
     private Instant createdAt = Instant.now();
+
+    /**
+     * Nombre del usuario destinatario de la notificación.
+     * Si es null, la notificación se difunde a todos los usuarios.
+     */
+    private String recipient;
 }
@@ -5,6 +5,7 @@ import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.ProductChangeListener;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -18,6 +19,7 @@ import java.util.List;
  */
 @Entity
 @Table(name = "products")
+@EntityListeners(ProductChangeListener.class) // Mantiene actualizado el índice de autocompletado.
 @Getter
 @Setter
 @NoArgsConstructor
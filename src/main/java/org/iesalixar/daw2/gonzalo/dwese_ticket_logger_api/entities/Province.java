@@ -6,6 +6,7 @@ import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.DataChangeListener;
 
 import java.util.List;
 
@@ -26,6 +27,7 @@ import java.util.List;
  */
 @Entity // Marca esta clase como una entidad JPA.
 @Table(name = "provinces") // Define el nombre de la tabla asociada a esta entidad.
+@EntityListeners(DataChangeListener.class) // Actualiza la versión usada en los ETag del listado.
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
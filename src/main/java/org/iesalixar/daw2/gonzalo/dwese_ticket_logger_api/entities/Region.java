@@ -6,6 +6,7 @@ import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.DataChangeListener;
 
 /**
  * La clase `Region` representa una entidad que modela una región dentro de la
@@ -21,6 +22,7 @@ import lombok.NoArgsConstructor;
  */
 @Entity // Marca esta clase como una entidad gestionada por JPA.
 @Table(name = "regions") // Especifica el nombre de la tabla asociada a esta entidad.
+@EntityListeners(DataChangeListener.class) // Actualiza la versión usada en los ETag del listado.
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
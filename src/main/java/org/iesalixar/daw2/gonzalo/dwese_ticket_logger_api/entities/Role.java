@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.RoleChangeListener;
 import java.util.Set;
 /**
  * La clase `Role` representa un rol o autoridad en el sistema.
@@ -19,6 +20,7 @@ import java.util.Set;
  */
 @Entity // Marca esta clase como una entidad JPA.
 @Table(name = "roles") // Define el nombre de la tabla asociada a esta entidad.
+@EntityListeners(RoleChangeListener.class) // Mantiene actualizado el registro de autoridades.
 @Getter
 @Setter
 @NoArgsConstructor
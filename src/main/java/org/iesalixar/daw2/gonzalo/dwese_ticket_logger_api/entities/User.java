@@ -7,6 +7,7 @@ import jakarta.validation.constraints.Size;
 import lombok.*;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.UserChangeListener;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 import java.time.LocalDateTime;
 import java.util.Set;
@@ -33,7 +34,7 @@ import java.util.Set;
 @AllArgsConstructor
 @ToString(exclude = "roles") // Excluye roles para evitar problemas de recursión en el toString.
 @EqualsAndHashCode(exclude = "roles") // Excluye roles para evitar recursión en equals y hashCode.
-@EntityListeners(AuditingEntityListener.class) // Habilita las anotaciones de auditoría.
+@EntityListeners({AuditingEntityListener.class, UserChangeListener.class}) // Habilita la auditoría y la limpieza de la caché de principales.
         public class User {
             // Campo que almacena el identificador único del usuario. Es autogenerado y clave primaria.
             @Id
@@ -5,6 +5,7 @@ import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.NotificationDTO;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.Notification;
 
 import java.time.Instant;
+import java.util.ArrayList;
 
 /**
  * Mapper manual para convertir entre Notification y sus DTOs.
@@ -12,12 +13,23 @@ import java.time.Instant;
 public class NotificationMapper {
 
     /**
-     * Convierte una entidad Notification a un DTO NotificationDTO.
+     * Convierte una entidad Notification a un DTO NotificationDTO sin estado de lectura
+     * (por ejemplo, al difundir una notificación nueva a todos los usuarios).
      * @param notification la entidad Notification a convertir.
      * @return el DTO NotificationDTO resultante.
      */
 
     public static NotificationDTO toDTO(Notification notification) {
+        return toDTO(notification, null);
+    }
+
+    /**
+     * Convierte una entidad Notification a un DTO NotificationDTO con el estado de lectura del usuario.
+     * @param notification la entidad Notification a convertir.
+     * @param username usuario que consulta la notificación (null si es anónimo).
+     * @return el DTO NotificationDTO resultante.
+     */
+    public static NotificationDTO toDTO(Notification notification, String username) {
         if (notification == null) {
             return null;
         }
@@ -26,8 +38,9 @@ public class NotificationMapper {
                 notification.getId(),
                 notification.getSubject(),
                 notification.getMessage(),
-                notification.isRead(),
-                notification.getCreatedAt()
+                username != null && notification.getReadBy() != null && notification.getReadBy().contains(username),
+                notification.getCreatedAt(),
+                notification.getRecipient()
         );
     }
 
@@ -46,8 +59,9 @@ public class NotificationMapper {
                 null, // ID generado automáticamente en la base de datos
                 notificationCreateDTO.getSubject(),
                 notificationCreateDTO.getMessage(),
-                notificationCreateDTO.isRead(),
-                Instant.now() // Fecha de creación actual
+                new ArrayList<>(), // Aún no la ha leído nadie
+                Instant.now(), // Fecha de creación actual
+                notificationCreateDTO.getRecipient()
         );
     }
 }
@@ -0,0 +1,19 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.mappers;
+
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.ProductDTO;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.Product;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ProductMapper {
+
+    /**
+     * Convierte una entidad 'Product' a un 'ProductDTO'.
+     *
+     * @param product Entidad de producto.
+     * @return DTO correspondiente.
+     */
+    public ProductDTO toDTO(Product product) {
+        return new ProductDTO(product.getId(), product.getName(), product.getPrice());
+    }
+}
@@ -0,0 +1,52 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.mappers;
+
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.ProvinceCreateDTO;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.ProvinceDTO;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.Province;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.projections.ProvinceSummary;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ProvinceMapper {
+
+    /**
+     * Convierte una entidad 'Province' a un 'ProvinceDTO' (datos básicos).
+     *
+     * @param province Entidad de provincia.
+     * @return DTO correspondiente.
+     */
+    public ProvinceDTO toDTO(Province province) {
+        ProvinceDTO dto = new ProvinceDTO();
+        dto.setId(province.getId());
+        dto.setCode(province.getCode());
+        dto.setName(province.getName());
+        return dto;
+    }
+
+    /**
+     * Convierte una proyección 'ProvinceSummary' a un 'ProvinceDTO'.
+     *
+     * @param summary Proyección de provincia.
+     * @return DTO correspondiente.
+     */
+    public ProvinceDTO toDTO(ProvinceSummary summary) {
+        ProvinceDTO dto = new ProvinceDTO();
+        dto.setId(summary.getId());
+        dto.setCode(summary.getCode());
+        dto.setName(summary.getName());
+        return dto;
+    }
+
+    /**
+     * Convierte un 'ProvinceCreateDTO' a una entidad 'Province' (para creación).
+     *
+     * @param createDTO DTO para crear provincias
+     * @return Entidad Province
+     */
+    public Province toEntity(ProvinceCreateDTO createDTO) {
+        Province province = new Province();
+        province.setCode(createDTO.getCode());
+        province.setName(createDTO.getName());
+        return province;
+    }
+}
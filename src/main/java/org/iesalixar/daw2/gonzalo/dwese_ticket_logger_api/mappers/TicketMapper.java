@@ -0,0 +1,34 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.mappers;
+
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.TicketDTO;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.Ticket;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+public class TicketMapper {
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    /**
+     * Convierte una entidad 'Ticket' a un 'TicketDTO' con sus productos.
+     * Los productos deben estar ya cargados para no lanzar una consulta por ticket.
+     *
+     * @param ticket Entidad de ticket.
+     * @return DTO correspondiente.
+     */
+    public TicketDTO toDTO(Ticket ticket) {
+        TicketDTO dto = new TicketDTO();
+        dto.setId(ticket.getId());
+        dto.setDate(ticket.getDate());
+        dto.setDiscount(ticket.getDiscount());
+        dto.setTotal(ticket.getTotal());
+        dto.setProducts(ticket.getProducts() == null
+                ? List.of()
+                : ticket.getProducts().stream().map(productMapper::toDTO).toList());
+        return dto;
+    }
+}
@@ -2,6 +2,9 @@ package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories;
 
 import
         org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.Product;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.projections.ProductOption;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -24,12 +27,44 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     // List<Product> findByCategoryId(@Param("categoryId") Long categoryId);
 
     /**
-     * Busca una lista de productos cuyo nombre contenga la cadena proporcionada,
-     sin distinguir entre mayúsculas y minúsculas.
+     * Busca productos cuyo nombre empieza por el prefijo indicado. La comparación se hace
+     * directamente sobre la columna (la intercalación de MariaDB no distingue mayúsculas),
+     * de modo que la consulta puede usar el índice idx_products_name.
      *
-     * @param name la cadena a buscar dentro del campo 'name' de los productos.
-     * @return una lista de productos que contienen la cadena especificada,
-    ignorando mayúsculas y minúsculas.
+     * @param pattern  prefijo ya escapado y terminado en '%' (el carácter de escape es '!').
+     * @param pageable página, tamaño y ordenación.
+     * @return página de productos cuyo nombre empieza por el prefijo.
      */
-    List<Product> findByNameContainingIgnoreCase(String name);
-}
\ No newline at end of file
+    @Query("SELECT p.id AS id, p.name AS name, p.price AS price FROM Product p "
+            + "WHERE p.name LIKE :pattern ESCAPE '!'")
+    Page<ProductOption> findOptionsByNameLike(@Param("pattern") String pattern, Pageable pageable);
+
+    /**
+     * Busca productos con el índice FULLTEXT ft_products_name en modo booleano, lo que permite
+     * encontrar palabras en cualquier posición del nombre (por ejemplo "+entera*").
+     *
+     * @param terms    términos de búsqueda en la sintaxis booleana de MariaDB.
+     * @param pageable página, tamaño y ordenación.
+     * @return página de productos que contienen todos los términos.
+     */
+    @Query(value = "SELECT id, name, price FROM products WHERE MATCH(name) AGAINST (:terms IN BOOLEAN MODE)",
+            countQuery = "SELECT COUNT(*) FROM products WHERE MATCH(name) AGAINST (:terms IN BOOLEAN MODE)",
+            nativeQuery = true)
+    Page<ProductOption> findOptionsByFullText(@Param("terms") String terms, Pageable pageable);
+
+    /**
+     * Obtiene una página de productos con solo su id, nombre y precio.
+     *
+     * @param pageable página, tamaño y ordenación.
+     * @return página de productos proyectados.
+     */
+    Page<ProductOption> findAllProjectedBy(Pageable pageable);
+
+    /**
+     * Obtiene todos los productos con solo su id, nombre y precio (para construir el índice de autocompletado).
+     *
+     * @return lista de productos proyectados.
+     */
+    @Query("SELECT p.id AS id, p.name AS name, p.price AS price FROM Product p")
+    List<ProductOption> findAllOptions();
+}
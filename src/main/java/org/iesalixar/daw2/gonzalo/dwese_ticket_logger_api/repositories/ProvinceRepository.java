@@ -7,6 +7,7 @@ import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Size;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.Province;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.Region;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.projections.ProvinceSummary;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -17,7 +18,13 @@ public interface ProvinceRepository extends JpaRepository<Province, Long> {
 
     Page<Province> findAll(Pageable pageable);
 
-    Page<Province> findByNameContainingIgnoreCase(String name, Pageable pageable);
+    // Búsqueda por nombre proyectada: solo selecciona id, code y name
+    Page<ProvinceSummary> findByNameContainingIgnoreCase(String name, Pageable pageable);
+
+    // Listado paginado proyectado: solo selecciona id, code y name
+    Page<ProvinceSummary> findAllProjectedBy(Pageable pageable);
+
+    Optional<ProvinceSummary> findProjectedById(Long id);
 
     long countByNameContainingIgnoreCase(String name);
 
@@ -1,8 +1,18 @@
 package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories;
 
 import java.util.List;
+import java.util.Optional;
+
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.Ticket;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.projections.TicketSummary;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.projections.TicketTotals;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 /**
  * Repositorio para la entidad Ticket que extiende JpaRepository.
@@ -21,4 +31,123 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
     especificado.
      */
     List<Ticket> findByDiscountGreaterThan(Float discount);
-}
\ No newline at end of file
+
+    /**
+     * Obtiene una página de identificadores de tickets.
+     * Se pagina sobre los identificadores porque paginar una consulta con fetch join
+     * obligaría a Hibernate a cargar todos los resultados y paginar en memoria.
+     *
+     * @param pageable página, tamaño y ordenación.
+     * @return página con los identificadores de los tickets.
+     */
+    @Query("SELECT t.id FROM Ticket t")
+    Page<Long> findIds(Pageable pageable);
+
+    /**
+     * Obtiene los tickets indicados junto con sus productos en una única consulta.
+     *
+     * @param ids identificadores de los tickets.
+     * @return lista de tickets con los productos ya cargados.
+     */
+    @EntityGraph(attributePaths = "products")
+    List<Ticket> findWithProductsByIdIn(List<Long> ids);
+
+    /**
+     * Obtiene un ticket junto con sus productos en una única consulta.
+     *
+     * @param id identificador del ticket.
+     * @return el ticket con los productos ya cargados, si existe.
+     */
+    @EntityGraph(attributePaths = "products")
+    Optional<Ticket> findWithProductsById(Long id);
+
+    /**
+     * Obtiene todos los tickets junto con sus productos en una única consulta.
+     *
+     * @return lista de tickets con los productos ya cargados.
+     */
+    @EntityGraph(attributePaths = "products")
+    @Query("SELECT t FROM Ticket t")
+    List<Ticket> findAllWithProducts();
+
+    /**
+     * Calcula en una única consulta agrupada los totales de una página de tickets:
+     * número de productos, suma de precios y total con el descuento aplicado.
+     *
+     * @param pageable página, tamaño y ordenación (por las propiedades de la proyección).
+     * @return página con los totales de cada ticket.
+     */
+    @Query(value = "SELECT t.id AS ticketId, COUNT(p.id) AS productCount, "
+            + "COALESCE(SUM(p.price), 0) AS subtotal, t.discount AS discount, "
+            + "ROUND(COALESCE(SUM(p.price), 0) * (100 - t.discount) / 100, 2) AS total "
+            + "FROM Ticket t LEFT JOIN t.products p GROUP BY t.id, t.discount",
+            countQuery = "SELECT COUNT(t) FROM Ticket t")
+    Page<TicketTotals> findTotals(Pageable pageable);
+
+    /**
+     * Calcula los totales de un ticket sin cargar sus productos.
+     *
+     * @param id identificador del ticket.
+     * @return los totales del ticket, si existe.
+     */
+    @Query("SELECT t.id AS ticketId, COUNT(p.id) AS productCount, "
+            + "COALESCE(SUM(p.price), 0) AS subtotal, t.discount AS discount, "
+            + "ROUND(COALESCE(SUM(p.price), 0) * (100 - t.discount) / 100, 2) AS total "
+            + "FROM Ticket t LEFT JOIN t.products p WHERE t.id = :id GROUP BY t.id, t.discount")
+    Optional<TicketTotals> findTotalsById(@Param("id") Long id);
+
+    /**
+     * Calcula los totales agregados de todos los tickets en una única consulta.
+     * Suma los totales de cada ticket calculados y redondeados igual que en {@link #findTotals(Pageable)},
+     * de modo que el total coincide con la suma de los totales por ticket.
+     *
+     * @return número de tickets y productos, suma de precios y total con descuentos.
+     */
+    @Query("SELECT COUNT(x.ticketId) AS ticketCount, COALESCE(SUM(x.productCount), 0) AS productCount, "
+            + "COALESCE(SUM(x.subtotal), 0) AS subtotal, COALESCE(SUM(x.total), 0) AS total "
+            + "FROM (SELECT t.id AS ticketId, COUNT(p.id) AS productCount, "
+            + "COALESCE(SUM(p.price), 0) AS subtotal, "
+            + "ROUND(COALESCE(SUM(p.price), 0) * (100 - t.discount) / 100, 2) AS total "
+            + "FROM Ticket t LEFT JOIN t.products p GROUP BY t.id, t.discount) x")
+    TicketSummary findSummary();
+
+    /**
+     * Asocia un producto a un ticket insertando una única fila en product_ticket.
+     * La existencia del ticket y del producto se comprueba en la propia consulta: si alguno
+     * no existe no se inserta nada. Si la asociación ya existe, la clave primaria de la tabla
+     * provoca una DataIntegrityViolationException.
+     *
+     * @param ticketId  ID del ticket.
+     * @param productId ID del producto.
+     * @return número de filas insertadas (0 si el ticket o el producto no existen).
+     */
+    @Modifying
+    @Query(value = "INSERT INTO product_ticket (product_id, ticket_id) "
+            + "SELECT p.id, t.id FROM products p JOIN tickets t ON t.id = :ticketId WHERE p.id = :productId",
+            nativeQuery = true)
+    int addProduct(@Param("ticketId") Long ticketId, @Param("productId") Long productId);
+
+    /**
+     * Elimina la asociación entre un ticket y un producto borrando su fila de product_ticket.
+     *
+     * @param ticketId  ID del ticket.
+     * @param productId ID del producto.
+     * @return número de filas eliminadas (0 si no estaban asociados).
+     */
+    @Modifying
+    @Query(value = "DELETE FROM product_ticket WHERE ticket_id = :ticketId AND product_id = :productId",
+            nativeQuery = true)
+    int removeProduct(@Param("ticketId") Long ticketId, @Param("productId") Long productId);
+
+    /**
+     * Cuenta los productos del ticket con el nombre indicado. La igualdad sobre la columna
+     * (sin funciones) permite usar el índice del nombre y después la clave primaria de
+     * product_ticket; la intercalación de MariaDB no distingue mayúsculas.
+     *
+     * @param ticketId ID del ticket.
+     * @param name     nombre del producto.
+     * @return número de productos del ticket con ese nombre.
+     */
+    @Query("SELECT COUNT(p) FROM Ticket t JOIN t.products p WHERE t.id = :ticketId AND p.name = :name")
+    long countProductsByName(@Param("ticketId") Long ticketId, @Param("name") String name);
+}
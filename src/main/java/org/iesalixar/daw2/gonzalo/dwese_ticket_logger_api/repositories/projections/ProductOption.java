@@ -0,0 +1,17 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.projections;
+
+import java.math.BigDecimal;
+
+/**
+ * Proyección con los datos de un producto necesarios para buscarlo o seleccionarlo.
+ * Spring Data solo selecciona las columnas id, name y price, sin cargar la entidad
+ * ni su lista de tickets.
+ */
+public interface ProductOption {
+
+    Long getId();
+
+    String getName();
+
+    BigDecimal getPrice();
+}
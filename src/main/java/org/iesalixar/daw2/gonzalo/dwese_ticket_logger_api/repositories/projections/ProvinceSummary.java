@@ -0,0 +1,15 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.projections;
+
+/**
+ * Proyección con los datos básicos de una provincia.
+ * Spring Data solo selecciona las columnas id, code y name, sin cargar la entidad
+ * ni sus relaciones (como la lista de ubicaciones).
+ */
+public interface ProvinceSummary {
+
+    Long getId();
+
+    String getCode();
+
+    String getName();
+}
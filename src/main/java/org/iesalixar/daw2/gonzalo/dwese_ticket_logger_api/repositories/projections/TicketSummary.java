@@ -0,0 +1,19 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.projections;
+
+import java.math.BigDecimal;
+
+/**
+ * Proyección con los totales agregados de todos los tickets calculados en la base de datos.
+ */
+public interface TicketSummary {
+
+    Long getTicketCount();
+
+    Long getProductCount();
+
+    // Suma de los precios de todos los productos, sin descuento
+    BigDecimal getSubtotal();
+
+    // Suma de los totales de los tickets con su descuento aplicado
+    BigDecimal getTotal();
+}
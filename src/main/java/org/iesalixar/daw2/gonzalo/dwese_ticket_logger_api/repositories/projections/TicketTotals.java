@@ -0,0 +1,21 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.projections;
+
+import java.math.BigDecimal;
+
+/**
+ * Proyección con los totales de un ticket calculados en la base de datos.
+ */
+public interface TicketTotals {
+
+    Long getTicketId();
+
+    Long getProductCount();
+
+    // Suma de los precios de los productos, sin descuento
+    BigDecimal getSubtotal();
+
+    BigDecimal getDiscount();
+
+    // Subtotal con el descuento (en porcentaje) aplicado
+    BigDecimal getTotal();
+}
@@ -0,0 +1,126 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services;
+
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.Role;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.RoleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro de instancias canónicas de {@link GrantedAuthority}.
+ * Se carga con los roles de la base de datos al arrancar y guarda, para cada combinación
+ * de roles recibida en un token, la lista inmutable de autoridades ya construida.
+ * Así, resolver los roles de una petición o de un frame STOMP no crea objetos nuevos.
+ * <p>
+ * Los roles y las combinaciones se guardan juntos en una instantánea que se sustituye entera al
+ * cambiar los roles: una resolución concurrente ve la instantánea anterior o la nueva, nunca un
+ * registro a medio cargar, y lo que memoriza en la anterior se descarta con ella.
+ */
+@Service
+public class AuthorityRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthorityRegistry.class);
+
+    // Número máximo de combinaciones de roles distintas que se guardan
+    private static final int MAX_COMBINATIONS = 256;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    // Instantánea publicada; solo se sustituye, nunca se vacía
+    private volatile Snapshot snapshot = Snapshot.of(Map.of());
+
+    /**
+     * Carga los roles existentes una vez que la aplicación ha arrancado.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void refresh() {
+        Map<String, GrantedAuthority> authorities = new HashMap<>();
+        roleRepository.findAll().forEach(role -> authorities.put(role.getName(), new SimpleGrantedAuthority(role.getName())));
+        publish(authorities);
+        logger.info("Registro de autoridades cargado con {} roles.", authorities.size());
+    }
+
+    /**
+     * Devuelve las autoridades correspondientes a una lista de roles.
+     * Si la combinación ya se ha resuelto antes se devuelve la misma lista, sin crear objetos.
+     *
+     * @param roles nombres de los roles.
+     * @return lista inmutable de autoridades.
+     */
+    public List<GrantedAuthority> resolve(List<String> roles) {
+        Snapshot current = snapshot;
+        List<GrantedAuthority> resolved = current.combinations().get(roles);
+        if (resolved != null) {
+            return resolved;
+        }
+        resolved = roles.stream().map(current::authorityFor).toList();
+        if (current.combinations().size() < MAX_COMBINATIONS) {
+            current.combinations().putIfAbsent(List.copyOf(roles), resolved);
+        }
+        return resolved;
+    }
+
+    /**
+     * Registra (o actualiza) un rol tras crearse o modificarse.
+     *
+     * @param roleName nombre del rol.
+     */
+    public synchronized void register(String roleName) {
+        Map<String, GrantedAuthority> authorities = new HashMap<>(snapshot.authorities());
+        authorities.put(roleName, new SimpleGrantedAuthority(roleName));
+        publish(authorities);
+    }
+
+    /**
+     * Elimina un rol del registro tras borrarse.
+     *
+     * @param roleName nombre del rol.
+     */
+    public synchronized void unregister(String roleName) {
+        Map<String, GrantedAuthority> authorities = new HashMap<>(snapshot.authorities());
+        authorities.remove(roleName);
+        publish(authorities);
+    }
+
+    /**
+     * Publica una instantánea nueva con las autoridades indicadas y sin combinaciones memorizadas.
+     */
+    private synchronized void publish(Map<String, GrantedAuthority> authorities) {
+        snapshot = Snapshot.of(authorities);
+    }
+
+    /**
+     * Autoridades canónicas (nombre del rol -> autoridad) y combinaciones de roles ya resueltas
+     * (tal y como llegan en el token -> lista inmutable de autoridades).
+     */
+    private record Snapshot(Map<String, GrantedAuthority> authorities,
+                            Map<List<String>, List<GrantedAuthority>> combinations) {
+
+        static Snapshot of(Map<String, GrantedAuthority> authorities) {
+            return new Snapshot(Map.copyOf(authorities), new ConcurrentHashMap<>());
+        }
+
+        /**
+         * Devuelve la autoridad canónica de un rol. Los roles que no están en la base de datos
+         * se resuelven igualmente, pero no se añaden al registro.
+         *
+         * @param roleName nombre del rol.
+         * @return la autoridad correspondiente.
+         */
+        GrantedAuthority authorityFor(String roleName) {
+            GrantedAuthority authority = authorities.get(roleName);
+            return authority != null ? authority : new SimpleGrantedAuthority(roleName);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services;
+
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.CacheStatsDTO;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.utils.BoundedCache;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registro de las cachés en memoria de la aplicación.
+ * Cada servicio registra sus cachés al crearlas para poder consultar sus estadísticas
+ * (tamaño, aciertos, fallos, expulsiones y tasa de aciertos) desde un único punto.
+ */
+@Service
+public class CacheRegistry {
+
+    private final List<BoundedCache<?, ?>> caches = new CopyOnWriteArrayList<>();
+
+    /**
+     * Registra una caché y la devuelve, para poder usarlo al inicializarla.
+     *
+     * @param cache caché a registrar.
+     * @return la misma caché.
+     */
+    public <K, V> BoundedCache<K, V> register(BoundedCache<K, V> cache) {
+        caches.add(cache);
+        return cache;
+    }
+
+    /**
+     * Obtiene las estadísticas de todas las cachés registradas.
+     *
+     * @return lista de estadísticas, una por caché.
+     */
+    public List<CacheStatsDTO> getStats() {
+        return caches.stream()
+                .map(cache -> new CacheStatsDTO(cache.getName(), cache.size(), cache.getMaxSize(),
+                        cache.getHits(), cache.getMisses(), cache.getEvictions(), cache.getHitRate()))
+                .toList();
+    }
+}
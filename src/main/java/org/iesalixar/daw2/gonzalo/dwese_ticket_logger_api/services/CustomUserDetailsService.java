@@ -1,22 +1,50 @@
 package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services;
 
 
+import jakarta.annotation.PostConstruct;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.Role;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.User;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.UserRepository;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.utils.BoundedCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
+    private static final Logger logger = LoggerFactory.getLogger(CustomUserDetailsService.class);
 
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private CacheRegistry cacheRegistry;
+
+    // Número máximo de usuarios que se mantienen en la caché de principales
+    @Value("${jwt.principal-cache.max-size:1000}")
+    private int principalCacheMaxSize;
+
+    // Tiempo (en segundos) que un usuario permanece en la caché antes de volver a consultarse
+    @Value("${jwt.principal-cache.ttl-seconds:60}")
+    private long principalCacheTtlSeconds;
+
+    // Caché de los usuarios ya cargados, usada por el filtro JWT para no consultar la base de datos en cada petición
+    private BoundedCache<String, UserDetails> principalCache;
+
+    @PostConstruct
+    public void init() {
+        principalCache = cacheRegistry.register(new BoundedCache<>("principals", principalCacheMaxSize,
+                Duration.ofSeconds(principalCacheTtlSeconds)));
+    }
+
     /**
      * Carga los detalles del usuario a partir de su nombre de usuario.
      *
@@ -45,4 +73,35 @@ public class CustomUserDetailsService implements UserDetailsService {
                 .disabled(!user.isEnabled())
                 .build();
     }
+
+    /**
+     * Carga los detalles del usuario pasando primero por la caché de principales.
+     * Se usa al validar tokens JWT, donde la contraseña no interviene. El login sigue
+     * usando {@link #loadUserByUsername(String)} para trabajar siempre con datos frescos.
+     *
+     * @param username El nombre de usuario a buscar.
+     * @return un objeto UserDetails con la información de autenticación del usuario.
+     * @throws UsernameNotFoundException Si el usuario no se encuentra en la base de datos.
+     */
+    public UserDetails loadCachedUserByUsername(String username) throws UsernameNotFoundException {
+        return principalCache.get(username, this::loadUserByUsername);
+    }
+
+    /**
+     * Elimina un usuario de la caché de principales, por ejemplo al deshabilitarlo o cambiar sus roles.
+     *
+     * @param username El nombre del usuario a eliminar de la caché.
+     */
+    public void evictUser(String username) {
+        logger.info("Eliminando de la caché de principales al usuario {}", username);
+        principalCache.invalidate(username);
+    }
+
+    /**
+     * Vacía por completo la caché de principales.
+     */
+    public void evictAllUsers() {
+        logger.info("Vaciando la caché de principales.");
+        principalCache.invalidateAll();
+    }
 }
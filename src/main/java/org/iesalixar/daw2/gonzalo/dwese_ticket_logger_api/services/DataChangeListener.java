@@ -0,0 +1,36 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import jakarta.persistence.Table;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.utils.AfterCommit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listener JPA que registra en {@link DataVersionTracker} cada creación, modificación o eliminación
+ * de las entidades que lo declaran, usando el nombre de su tabla.
+ * <p>
+ * El cambio se registra cuando la transacción se confirma: si se registrara al hacer el flush,
+ * una consulta entre el flush y el commit leería los datos antiguos con el ETag nuevo y los
+ * clientes recibirían 304 sobre datos obsoletos. Si la transacción se deshace, no se registra.
+ */
+@Component
+public class DataChangeListener {
+
+    // Se inyecta de forma perezosa para evitar el ciclo con el EntityManagerFactory durante el arranque
+    @Autowired
+    @Lazy
+    private DataVersionTracker dataVersionTracker;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        Table table = entity.getClass().getAnnotation(Table.class);
+        String tableName = table != null ? table.name() : entity.getClass().getSimpleName();
+        AfterCommit.run(() -> dataVersionTracker.markChanged(tableName));
+    }
+}
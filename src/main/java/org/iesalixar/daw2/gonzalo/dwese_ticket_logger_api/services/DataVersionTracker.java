@@ -0,0 +1,93 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lleva un contador de cambios y la fecha de la última modificación de cada tabla o colección.
+ * Con ellos se generan las cabeceras ETag y Last-Modified de los listados, de forma que las
+ * peticiones condicionales sobre datos que no han cambiado se responden con 304 sin consultar
+ * la base de datos.
+ * <p>
+ * Los contadores incluyen un identificador del arranque, por lo que tras reiniciar la aplicación
+ * todas las versiones anteriores dejan de ser válidas.
+ * <p>
+ * Los contadores solo avanzan con los cambios que ve este nodo. Las inserciones que llegan por el
+ * change stream sí los mueven, porque NotificationBroadcaster marca las notificaciones como cambiadas
+ * al publicarlas; solo las pierden los nodos que no las publican (los que no tienen el change stream).
+ * Tampoco los mueven las escrituras de otras instancias en las tablas, los borrados del índice TTL ni
+ * los cambios hechos directamente en la base de datos. Para todos esos casos cada versión caduca: el ETag
+ * incluye el periodo actual de {@code data-version.max-staleness-seconds} y la fecha de última
+ * modificación nunca es anterior al inicio de ese periodo, de modo que una respuesta 304 sobre
+ * datos obsoletos dura como mucho ese tiempo.
+ */
+@Service
+public class DataVersionTracker {
+
+    public static final String REGIONS = "regions";
+    public static final String PROVINCES = "provinces";
+    public static final String NOTIFICATIONS = "notifications";
+
+    private final long bootTime = System.currentTimeMillis();
+    private final String bootId = Long.toString(bootTime, 36);
+
+    private final ConcurrentHashMap<String, Version> versions = new ConcurrentHashMap<>();
+
+    // Tiempo máximo (en segundos) que una versión se considera vigente sin cambios registrados
+    @Value("${data-version.max-staleness-seconds:60}")
+    private long maxStalenessSeconds;
+
+    /**
+     * Registra un cambio en la tabla indicada.
+     *
+     * @param table nombre de la tabla o colección.
+     */
+    public void markChanged(String table) {
+        long now = System.currentTimeMillis();
+        versions.compute(table, (key, current) ->
+                new Version(current == null ? 1 : current.counter() + 1, now));
+    }
+
+    /**
+     * Genera el ETag de la versión actual de la tabla.
+     *
+     * @param table     nombre de la tabla o colección.
+     * @param qualifier dato adicional que distingue respuestas diferentes para la misma versión
+     *                  (por ejemplo, el usuario), o null.
+     * @return ETag entre comillas.
+     */
+    public String getETag(String table, String qualifier) {
+        Version version = versions.get(table);
+        long counter = version == null ? 0 : version.counter();
+        String suffix = qualifier == null ? "" : "-" + Integer.toHexString(qualifier.hashCode());
+        long period = System.currentTimeMillis() / stalenessMillis();
+        return "\"" + table + "-" + bootId + "-" + counter + "-" + Long.toString(period, 36) + suffix + "\"";
+    }
+
+    /**
+     * Obtiene la fecha de la última modificación de la tabla (o del arranque, si no ha cambiado),
+     * que nunca es anterior al inicio del periodo de vigencia actual.
+     *
+     * @param table nombre de la tabla o colección.
+     * @return milisegundos desde epoch.
+     */
+    public long getLastModified(String table) {
+        Version version = versions.get(table);
+        long lastModified = version == null ? bootTime : version.lastModified();
+        long stalenessMillis = stalenessMillis();
+        long periodStart = System.currentTimeMillis() / stalenessMillis * stalenessMillis;
+        return Math.max(lastModified, periodStart);
+    }
+
+    private long stalenessMillis() {
+        return Math.max(1, maxStalenessSeconds) * 1000;
+    }
+
+    /**
+     * Contador de cambios y fecha de la última modificación.
+     */
+    private record Version(long counter, long lastModified) {
+    }
+}
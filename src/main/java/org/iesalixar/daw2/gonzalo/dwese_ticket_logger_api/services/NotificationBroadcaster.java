@@ -0,0 +1,200 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.NotificationDTO;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.utils.RingBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Difunde las notificaciones por WebSocket agrupándolas en lotes.
+ * Las notificaciones se acumulan durante unos milisegundos o hasta alcanzar un tamaño máximo
+ * y se publican en "/topic/notifications" como un único mensaje con un array, respetando el
+ * orden en que se recibieron. Las notificaciones con destinatario se envían solo a ese usuario
+ * por "/user/queue/notifications", y únicamente si tiene alguna sesión suscrita. Así, en ráfagas (por ejemplo, cambios masivos de precios) se
+ * envían muchos menos mensajes y se evita un cambio de hilo por notificación.
+ * <p>
+ * Además conserva las últimas notificaciones difundidas para que los clientes que se reconectan
+ * puedan recuperar solo las que se perdieron.
+ * <p>
+ * El sink solo admite un emisor a la vez, así que las emisiones se serializan con un bloqueo en
+ * lugar de reintentarse en espera activa. Si el buffer de pendientes está lleno, la notificación
+ * se descarta (ya está guardada y en el buffer de reenvío) y se contabiliza.
+ */
+@Service
+public class NotificationBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationBroadcaster.class);
+
+    // Canal de WebSocket donde se publican los lotes de notificaciones
+    public static final String NOTIFICATIONS_TOPIC = "/topic/notifications";
+
+    // Cola de cada usuario para las notificaciones dirigidas a él (el cliente se suscribe a "/user/queue/notifications")
+    public static final String USER_NOTIFICATIONS_QUEUE = "/queue/notifications";
+
+    private static final String USER_NOTIFICATIONS_SUBSCRIPTION = "/user" + USER_NOTIFICATIONS_QUEUE;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    // Registro de usuarios conectados y sus suscripciones (en modo relay incluye los de otros nodos)
+    @Autowired
+    private SimpUserRegistry simpUserRegistry;
+
+    @Autowired
+    private DataVersionTracker dataVersionTracker;
+
+    // Número máximo de notificaciones por mensaje
+    @Value("${notifications.broadcast.max-batch-size:100}")
+    private int maxBatchSize;
+
+    // Tiempo máximo (en milisegundos) que una notificación espera antes de enviarse
+    @Value("${notifications.broadcast.flush-millis:50}")
+    private long flushMillis;
+
+    // Número máximo de notificaciones pendientes de envío; por encima se descartan
+    @Value("${notifications.broadcast.buffer-capacity:10000}")
+    private int bufferCapacity;
+
+    // Número de notificaciones recientes que se conservan para reenviarlas a los clientes que se reconectan
+    @Value("${notifications.replay.buffer-size:1024}")
+    private int replayBufferSize;
+
+    private Sinks.Many<NotificationDTO> sink;
+
+    private RingBuffer<NotificationDTO> recentNotifications;
+
+    private Disposable subscription;
+
+    // Bloqueo que serializa las emisiones al sink
+    private final Object emitLock = new Object();
+
+    // Notificaciones descartadas por tener el buffer de pendientes lleno
+    private final AtomicLong droppedNotifications = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        recentNotifications = new RingBuffer<>(replayBufferSize);
+        sink = Sinks.many().unicast().onBackpressureBuffer(Queues.<NotificationDTO>get(bufferCapacity).get());
+        subscription = sink.asFlux()
+                .bufferTimeout(maxBatchSize, Duration.ofMillis(flushMillis))
+                .subscribe(this::send,
+                        error -> logger.error("El difusor de notificaciones se ha detenido por un error", error));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Completa el flujo para enviar el último lote pendiente
+        synchronized (emitLock) {
+            sink.tryEmitComplete();
+        }
+        subscription.dispose();
+    }
+
+    /**
+     * Añade una notificación al siguiente lote a difundir.
+     * Puede llamarse desde varios hilos a la vez: las emisiones se serializan y nunca esperan
+     * a que se vacíe el buffer.
+     *
+     * @param notification la notificación a difundir.
+     */
+    public void broadcast(NotificationDTO notification) {
+        recentNotifications.add(notification);
+        dataVersionTracker.markChanged(DataVersionTracker.NOTIFICATIONS);
+        Sinks.EmitResult result;
+        synchronized (emitLock) {
+            result = sink.tryEmitNext(notification);
+        }
+        if (result == Sinks.EmitResult.FAIL_OVERFLOW) {
+            long dropped = droppedNotifications.incrementAndGet();
+            logger.warn("Buffer de difusión lleno: se descarta la notificación {} ({} descartadas en total)",
+                    notification.getId(), dropped);
+        } else if (result.isFailure()) {
+            logger.warn("No se ha podido encolar la notificación {} para su difusión: {}",
+                    notification.getId(), result);
+        }
+    }
+
+    /**
+     * Número de notificaciones descartadas desde el arranque por tener el buffer de pendientes lleno.
+     */
+    public long getDroppedNotifications() {
+        return droppedNotifications.get();
+    }
+
+    /**
+     * Obtiene las notificaciones difundidas después de la indicada, de la más antigua a la más reciente.
+     *
+     * @param lastSeenId identificador de la última notificación recibida por el cliente.
+     * @return las notificaciones posteriores, o vacío si la indicada ya no está en el buffer.
+     */
+    public Optional<List<NotificationDTO>> getNotificationsAfter(String lastSeenId) {
+        return recentNotifications.itemsAfter(notification -> lastSeenId.equals(notification.getId()));
+    }
+
+    /**
+     * Envía un lote de notificaciones: las generales en un único mensaje al topic y las dirigidas
+     * en un mensaje por destinatario, manteniendo el orden de llegada dentro de cada grupo.
+     *
+     * @param batch lote de notificaciones en orden de llegada.
+     */
+    private void send(List<NotificationDTO> batch) {
+        try {
+            List<NotificationDTO> general = new ArrayList<>();
+            Map<String, List<NotificationDTO>> byRecipient = new LinkedHashMap<>();
+            for (NotificationDTO notification : batch) {
+                if (notification.getRecipient() == null) {
+                    general.add(notification);
+                } else {
+                    byRecipient.computeIfAbsent(notification.getRecipient(), r -> new ArrayList<>()).add(notification);
+                }
+            }
+
+            if (!general.isEmpty()) {
+                messagingTemplate.convertAndSend(NOTIFICATIONS_TOPIC, general);
+            }
+            byRecipient.forEach((recipient, notifications) -> {
+                if (isSubscribed(recipient)) {
+                    messagingTemplate.convertAndSendToUser(recipient, USER_NOTIFICATIONS_QUEUE, notifications);
+                }
+            });
+            logger.debug("Difundido un lote de {} notificaciones ({} generales, {} destinatarios)",
+                    batch.size(), general.size(), byRecipient.size());
+        } catch (Exception e) {
+            // Se captura para no cancelar el flujo: se pierde este lote, pero no los siguientes
+            logger.error("Error al difundir un lote de {} notificaciones", batch.size(), e);
+        }
+    }
+
+    /**
+     * Indica si el usuario tiene alguna sesión suscrita a su cola de notificaciones.
+     * Si no está conectado no se envía nada: la notificación ya está guardada y la obtendrá al consultarlas.
+     *
+     * @param username nombre del usuario.
+     * @return true si alguna de sus sesiones está suscrita.
+     */
+    private boolean isSubscribed(String username) {
+        SimpUser user = simpUserRegistry.getUser(username);
+        return user != null && user.getSessions().stream()
+                .flatMap(session -> session.getSubscriptions().stream())
+                .anyMatch(subscription -> USER_NOTIFICATIONS_SUBSCRIPTION.equals(subscription.getDestination()));
+    }
+}
@@ -0,0 +1,321 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.conversions.Bson;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.Notification;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.mappers.NotificationMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ReactiveChangeStreamOperation;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Difunde por WebSocket las notificaciones insertadas en MongoDB observando el change stream
+ * de la colección, en lugar de hacerlo al guardarlas. Así también se difunden las notificaciones
+ * escritas desde otros nodos o herramientas, y la latencia de escritura no depende de la difusión.
+ * <p>
+ * Se activa con {@code notifications.broadcast.source=change-stream} y requiere que MongoDB
+ * funcione como replica set. Cada nodo guarda periódicamente el último resume token que ha
+ * procesado, de modo que tras un reinicio continúa desde donde lo dejó. Con el broker simple,
+ * cada nodo difunde a sus propios clientes todas las inserciones que observa.
+ * <p>
+ * Con el broker externo todos los nodos publican en el mismo broker, así que solo uno puede observar
+ * el change stream o cada cliente recibiría una copia por nodo. Los nodos compiten por una concesión
+ * (un documento en MongoDB con el nodo propietario y su caducidad): el que la obtiene la renueva
+ * periódicamente y es el único que observa la colección; si deja de renovarla, otro nodo la obtiene
+ * al caducar y continúa desde el resume token compartido. La caducidad se calcula con el reloj de
+ * cada nodo, por lo que la duración de la concesión debe ser muy superior al desfase entre relojes.
+ */
+@Service
+@ConditionalOnProperty(name = "notifications.broadcast.source", havingValue = "change-stream")
+public class NotificationChangeStreamListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationChangeStreamListener.class);
+
+    // Código de error de MongoDB cuando el resume token ya no está en el oplog
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+    // Código de error de MongoDB por clave duplicada (la concesión pertenece a otro nodo)
+    private static final int DUPLICATE_KEY = 11000;
+
+    // ID del documento de la concesión y del resume token compartido en modo broker externo
+    private static final String PUBLISHER_ID = "notifications-publisher";
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    private NotificationBroadcaster notificationBroadcaster;
+
+    // Identificador del nodo con el que se guarda su resume token
+    @Value("${notifications.change-stream.node-id:local}")
+    private String nodeId;
+
+    // Colección donde se guardan los resume tokens de cada nodo
+    @Value("${notifications.change-stream.token-collection:notification_stream_tokens}")
+    private String tokenCollection;
+
+    // Periodo (en segundos) con el que se guarda el último resume token procesado
+    @Value("${notifications.change-stream.token-save-seconds:5}")
+    private long tokenSaveSeconds;
+
+    // Colección donde se guarda la concesión del nodo que publica en el broker externo
+    @Value("${notifications.change-stream.lease-collection:notification_stream_lease}")
+    private String leaseCollection;
+
+    // Duración (en segundos) de la concesión; se renueva cada tercio de este tiempo
+    @Value("${notifications.change-stream.lease-seconds:15}")
+    private long leaseSeconds;
+
+    @Value("${websocket.broker.relay.enabled:false}")
+    private boolean relayEnabled;
+
+    // Último resume token procesado y último guardado en la base de datos
+    private final AtomicReference<BsonValue> lastToken = new AtomicReference<>();
+    private final AtomicReference<BsonValue> savedToken = new AtomicReference<>();
+
+    private Disposable streamSubscription;
+    private Disposable tokenSubscription;
+    private Disposable leaseSubscription;
+
+    // Instante (en milisegundos) hasta el que es válida la concesión obtenida por este nodo
+    private volatile long leaseValidUntil;
+
+    /**
+     * Empieza a observar la colección una vez arrancada la aplicación. Con el broker externo solo
+     * lo hace el nodo que obtiene la concesión.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (relayEnabled) {
+            leaseSubscription = Flux.interval(Duration.ZERO, Duration.ofMillis(leaseMillis() / 3))
+                    .concatMap(tick -> acquireLease())
+                    .subscribe(this::onLease);
+            logger.info("Nodo {} compitiendo por la publicación del change stream en el broker externo.", nodeId);
+        } else {
+            startStream();
+            logger.info("Difundiendo notificaciones desde el change stream (nodo {}).", nodeId);
+        }
+
+        tokenSubscription = Flux.interval(Duration.ofSeconds(tokenSaveSeconds))
+                .concatMap(tick -> saveToken().onErrorResume(e -> {
+                    logger.warn("No se ha podido guardar el resume token: {}", e.getMessage());
+                    return Mono.empty();
+                }))
+                .subscribe();
+    }
+
+    /**
+     * Detiene la observación, guarda el último resume token procesado y libera la concesión si la tiene.
+     */
+    @PreDestroy
+    public void stop() {
+        if (leaseSubscription != null) {
+            leaseSubscription.dispose();
+        }
+        if (tokenSubscription != null) {
+            tokenSubscription.dispose();
+        }
+        boolean publishing = stopStream();
+        if (publishing) {
+            saveToken().block(Duration.ofSeconds(5));
+            if (relayEnabled) {
+                releaseLease().block(Duration.ofSeconds(5));
+            }
+        }
+    }
+
+    /**
+     * Empieza o deja de observar la colección según se haya obtenido o perdido la concesión.
+     */
+    private synchronized void onLease(boolean acquired) {
+        if (acquired && streamSubscription == null) {
+            logger.info("Nodo {} obtiene la concesión: difunde las notificaciones desde el change stream.", nodeId);
+            startStream();
+        } else if (!acquired && streamSubscription != null) {
+            logger.warn("Nodo {} pierde la concesión: deja de observar el change stream.", nodeId);
+            stopStream();
+        }
+    }
+
+    /**
+     * Carga el resume token guardado y empieza a observar la colección.
+     */
+    private synchronized void startStream() {
+        lastToken.set(null);
+        savedToken.set(null);
+        streamSubscription = loadToken()
+                .doOnNext(token -> {
+                    lastToken.set(token);
+                    savedToken.set(token);
+                })
+                .thenMany(Flux.defer(this::listen))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> logger.warn("Reconectando al change stream de notificaciones: {}",
+                                signal.failure().getMessage())))
+                .subscribe(event -> {
+                    Notification notification = event.getBody();
+                    if (notification != null) {
+                        notificationBroadcaster.broadcast(NotificationMapper.toDTO(notification));
+                    }
+                    lastToken.set(event.getResumeToken());
+                });
+    }
+
+    /**
+     * Deja de observar la colección.
+     *
+     * @return true si se estaba observando.
+     */
+    private synchronized boolean stopStream() {
+        if (streamSubscription == null) {
+            return false;
+        }
+        streamSubscription.dispose();
+        streamSubscription = null;
+        return true;
+    }
+
+    /**
+     * Obtiene o renueva la concesión: se actualiza el documento si es de este nodo o ha caducado,
+     * y si pertenece a otro nodo la inserción falla por clave duplicada. Si MongoDB no responde,
+     * se conserva el estado mientras la concesión obtenida no haya caducado.
+     *
+     * @return true si este nodo tiene la concesión.
+     */
+    private Mono<Boolean> acquireLease() {
+        long now = System.currentTimeMillis();
+        Bson filter = Filters.and(Filters.eq("_id", PUBLISHER_ID),
+                Filters.or(Filters.eq("owner", nodeId), Filters.lt("expiresAt", new Date(now))));
+        Bson update = Updates.combine(Updates.set("owner", nodeId),
+                Updates.set("expiresAt", new Date(now + leaseMillis())));
+        return reactiveMongoTemplate.getCollection(leaseCollection)
+                .flatMap(collection -> Mono.from(collection.updateOne(filter, update, new UpdateOptions().upsert(true))))
+                .map(result -> {
+                    leaseValidUntil = now + leaseMillis();
+                    return true;
+                })
+                .onErrorResume(e -> hasErrorCode(e, DUPLICATE_KEY), e -> Mono.just(false))
+                .onErrorResume(e -> {
+                    logger.warn("No se ha podido renovar la concesión del change stream: {}", e.getMessage());
+                    return Mono.just(System.currentTimeMillis() < leaseValidUntil);
+                });
+    }
+
+    /**
+     * Libera la concesión para que otro nodo la obtenga sin esperar a que caduque.
+     */
+    private Mono<Void> releaseLease() {
+        leaseValidUntil = 0;
+        return reactiveMongoTemplate.getCollection(leaseCollection)
+                .flatMap(collection -> Mono.from(collection.deleteOne(
+                        Filters.and(Filters.eq("_id", PUBLISHER_ID), Filters.eq("owner", nodeId)))))
+                .then()
+                .onErrorResume(e -> {
+                    logger.warn("No se ha podido liberar la concesión del change stream: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Abre el change stream de inserciones, continuando tras el último token procesado si lo hay.
+     * Si el token ya no está disponible en el oplog, se descarta y se empieza desde el momento actual.
+     */
+    private Flux<ChangeStreamEvent<Notification>> listen() {
+        ReactiveChangeStreamOperation.ChangeStreamWithFilterAndProjection<Notification> inserts =
+                reactiveMongoTemplate.changeStream(Notification.class)
+                        .watchCollection(Notification.class)
+                        .filter(Criteria.where("operationType").is("insert"));
+        BsonValue token = lastToken.get();
+        ReactiveChangeStreamOperation.TerminatingChangeStream<Notification> changeStream =
+                token == null ? inserts : inserts.resumeAt(token);
+        return changeStream.listen()
+                .doOnError(e -> {
+                    if (hasErrorCode(e, CHANGE_STREAM_HISTORY_LOST)) {
+                        logger.warn("El resume token ha caducado; se descartan las inserciones no observadas.");
+                        lastToken.set(null);
+                    }
+                });
+    }
+
+    /**
+     * Lee el resume token guardado para este nodo, o el compartido con el broker externo.
+     */
+    private Mono<BsonValue> loadToken() {
+        return reactiveMongoTemplate.getCollection(tokenCollection)
+                .flatMap(collection -> Mono.from(collection.withDocumentClass(BsonDocument.class)
+                        .find(Filters.eq("_id", tokenId()))
+                        .first()))
+                .map(document -> document.get("resumeToken"));
+    }
+
+    /**
+     * Guarda el último resume token procesado si ha cambiado desde el último guardado. Con el
+     * broker externo solo lo guarda el nodo que tiene la concesión.
+     */
+    private Mono<Void> saveToken() {
+        BsonValue token = lastToken.get();
+        if (token == null || token.equals(savedToken.get())
+                || (relayEnabled && System.currentTimeMillis() >= leaseValidUntil)) {
+            return Mono.empty();
+        }
+        String id = tokenId();
+        BsonDocument document = new BsonDocument("_id", new BsonString(id))
+                .append("resumeToken", token)
+                .append("updatedAt", new BsonDateTime(System.currentTimeMillis()));
+        return reactiveMongoTemplate.getCollection(tokenCollection)
+                .flatMap(collection -> Mono.from(collection.withDocumentClass(BsonDocument.class)
+                        .replaceOne(Filters.eq("_id", id), document, new ReplaceOptions().upsert(true))))
+                .doOnSuccess(result -> savedToken.set(token))
+                .then();
+    }
+
+    /**
+     * ID del resume token: propio de cada nodo, o compartido por el publicador con el broker externo.
+     */
+    private String tokenId() {
+        return relayEnabled ? PUBLISHER_ID : nodeId;
+    }
+
+    private long leaseMillis() {
+        return Duration.ofSeconds(Math.max(leaseSeconds, 3)).toMillis();
+    }
+
+    /**
+     * Indica si el error, o alguna de sus causas, es un error de MongoDB con el código indicado.
+     */
+    private boolean hasErrorCode(Throwable error, int code) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongoException && mongoException.getCode() == code) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
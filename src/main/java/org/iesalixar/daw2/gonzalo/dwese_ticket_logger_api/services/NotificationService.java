@@ -1,18 +1,36 @@
 package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services;
 
+import org.bson.types.ObjectId;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.NotificationBulkResultDTO;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.NotificationCreateDTO;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.NotificationDTO;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.NotificationReadResultDTO;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.Notification;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.mappers.NotificationMapper;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.NotificationRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Servicio para gestionar las notificaciones en la aplicación.
@@ -26,12 +44,36 @@ public class NotificationService {
     private NotificationRepository notificationRepository;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private NotificationBroadcaster notificationBroadcaster;
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    // Origen de la difusión por WebSocket: "save" (al guardar) o "change-stream" (al observar las inserciones)
+    @Value("${notifications.broadcast.source:save}")
+    private String broadcastSource;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Autowired
+    private DataVersionTracker dataVersionTracker;
+
+    // Número de documentos que MongoDB devuelve en cada lote del cursor al leer en streaming
+    @Value("${notifications.read.cursor-batch-size:256}")
+    private int cursorBatchSize;
+
+    // Número de notificaciones que se insertan en MongoDB en cada operación de la carga masiva
+    @Value("${notifications.bulk.batch-size:500}")
+    private int bulkBatchSize;
 
     private static final Logger logger = LoggerFactory.getLogger(NotificationService.class);
 
+    private static final String CHANGE_STREAM_SOURCE = "change-stream";
+
     /**
-     * Guarda una nueva notificación en la base de datos y la envía a través de WebSockets.
+     * Guarda una nueva notificación en la base de datos y la difunde a través de WebSockets.
+     * La difusión se agrupa en lotes mediante {@link NotificationBroadcaster}.
      *
      * @param notificationCreateDTO DTO de la notificación a guardar.
      * @return Mono de NotificationDTO con la notificación guardada.
@@ -40,26 +82,328 @@ public class NotificationService {
     public Mono<NotificationDTO> saveNotification(NotificationCreateDTO notificationCreateDTO) {
         Notification notification = NotificationMapper.toEntity(notificationCreateDTO);
         return notificationRepository.save(notification)
-                // Se ejecuta cuando la notificación ha sido guardada con éxito
-                .doOnSuccess(savedNotification ->
-                        // Crea un Mono para ejecutar la tarea de enviar la notificación por WebSocket
-                        Mono.fromRunnable(() -> messagingTemplate.convertAndSend(
-                                "/topic/notifications", // Canal de WeSocket donde se enviará la notificación
-                                NotificationMapper.toDTO(savedNotification) // Convertimos la entidad guardada a DTO
-                        ))
-                                .subscribeOn(Schedulers.boundedElastic()) // Se ejecuta en un pool de hilos elástico para evitar bloqueos
-                                .subscribe() // Suscripción para ejecutar la tarea asíncrona de envío
-                )
-                .map(NotificationMapper::toDTO); // Convierte la notificación guardada en DTO antes de devolverla
+                .map(NotificationMapper::toDTO) // Convierte la notificación guardada en DTO antes de devolverla
+                // Se encola para difundirla por WebSocket en el siguiente lote
+                .doOnNext(this::publish);
     }
 
     /**
-     * Obtiene todas las notificaciones almacenadas en MongoDB.
+     * Difunde una notificación recién guardada, salvo que la difusión la haga el
+     * {@link NotificationChangeStreamListener} a partir del change stream de MongoDB.
      *
-     * @return Flux de NotificactionDTO con todas las notificaciones.
+     * @param notification la notificación guardada.
+     */
+    private void publish(NotificationDTO notification) {
+        if (!CHANGE_STREAM_SOURCE.equals(broadcastSource)) {
+            notificationBroadcaster.broadcast(notification);
+        }
+    }
+
+    /**
+     * Obtiene una página de notificaciones, de la más reciente a la más antigua, mediante paginación por cursor.
+     * En lugar de saltar documentos, se continúa a partir de la última notificación devuelta
+     * (fecha de creación e identificador), por lo que el coste no crece con el número de página.
+     *
+     * @param username usuario que realiza la consulta (null si es anónimo); solo ve las notificaciones generales y las suyas.
+     * @param read   filtro opcional por estado de lectura (null para no filtrar).
+     * @param cursor cursor devuelto en la página anterior (null para la primera página).
+     * @param limit  número máximo de notificaciones a devolver.
+     * @return Mono con la página de notificaciones y el cursor de la siguiente, si la hay.
+     * @throws IllegalArgumentException si el cursor no es válido.
+     */
+    public Mono<NotificationPage> getNotificationsPage(String username, Boolean read, String cursor, int limit) {
+        Query query = buildQuery(username, read, cursor == null ? null : decodeCursor(cursor))
+                .limit(limit + 1); // Se pide una más para saber si hay página siguiente
+        return reactiveMongoTemplate.find(query, Notification.class)
+                .map(notification -> NotificationMapper.toDTO(notification, username))
+                .collectList()
+                .map(notifications -> {
+                    if (notifications.size() <= limit) {
+                        return new NotificationPage(notifications, null);
+                    }
+                    List<NotificationDTO> content = new ArrayList<>(notifications.subList(0, limit));
+                    return new NotificationPage(content, encodeCursor(content.get(limit - 1)));
+                });
+    }
+
+    /**
+     * Obtiene en streaming las notificaciones, de la más reciente a la más antigua.
+     * Los documentos se leen del cursor de MongoDB por lotes a medida que el cliente los consume.
+     *
+     * @param username usuario que realiza la consulta (null si es anónimo); solo ve las notificaciones generales y las suyas.
+     * @param read     filtro opcional por estado de lectura (null para no filtrar).
+     * @return Flux de NotificationDTO.
+     */
+    public Flux<NotificationDTO> streamNotifications(String username, Boolean read) {
+        Query query = buildQuery(username, read, null).cursorBatchSize(cursorBatchSize);
+        return reactiveMongoTemplate.find(query, Notification.class)
+                .map(notification -> NotificationMapper.toDTO(notification, username));
+    }
+
+    /**
+     * Obtiene las notificaciones que un cliente se ha perdido desde la última que recibió,
+     * de la más antigua a la más reciente. Se sirven desde las notificaciones recientes que
+     * conserva {@link NotificationBroadcaster} y, si la indicada ya no está entre ellas,
+     * se consultan en MongoDB a partir de su fecha de creación.
+     *
+     * @param username   usuario que realiza la consulta (null si es anónimo).
+     * @param lastSeenId identificador de la última notificación recibida por el cliente.
+     * @param limit      número máximo de notificaciones a devolver.
+     * @return Mono con las notificaciones perdidas, o vacío si la notificación indicada no existe.
+     */
+    public Mono<List<NotificationDTO>> getMissedNotifications(String username, String lastSeenId, int limit) {
+        Optional<List<NotificationDTO>> recent = notificationBroadcaster.getNotificationsAfter(lastSeenId);
+        if (recent.isPresent()) {
+            return Mono.just(recent.get().stream()
+                    .filter(notification -> notification.getRecipient() == null
+                            || notification.getRecipient().equals(username))
+                    .limit(limit)
+                    .toList());
+        }
+
+        logger.debug("La notificación {} ya no está en memoria, se consulta en MongoDB", lastSeenId);
+        return notificationRepository.findById(lastSeenId)
+                .flatMap(last -> {
+                    Query query = new Query(new Criteria().andOperator(
+                            visibleTo(username),
+                            new Criteria().orOperator(
+                                    Criteria.where("createdAt").gt(last.getCreatedAt()),
+                                    new Criteria().andOperator(
+                                            Criteria.where("createdAt").is(last.getCreatedAt()),
+                                            Criteria.where("id").gt(last.getId())))))
+                            .with(Sort.by(Sort.Direction.ASC, "createdAt", "id"))
+                            .limit(limit);
+                    return reactiveMongoTemplate.find(query, Notification.class)
+                            .map(notification -> NotificationMapper.toDTO(notification, username))
+                            .collectList();
+                });
+    }
+
+    /**
+     * Marca como leídas para el usuario las notificaciones indicadas con una única operación de actualización.
+     * Solo se modifican las notificaciones visibles para el usuario que él aún no había leído;
+     * el resto de usuarios no se ven afectados.
+     *
+     * @param username usuario autenticado que realiza la operación.
+     * @param ids      identificadores de las notificaciones a marcar.
+     * @return Mono con el número de notificaciones encontradas y modificadas.
+     */
+    public Mono<NotificationReadResultDTO> markAsRead(String username, List<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Mono.just(new NotificationReadResultDTO(0, 0));
+        }
+        return markAsRead(username, new Criteria().andOperator(
+                visibleTo(username),
+                Criteria.where("id").in(ids),
+                Criteria.where("readBy").ne(username)));
+    }
+
+    /**
+     * Marca como leídas para el usuario todas las notificaciones creadas hasta la fecha indicada
+     * con una única operación. Solo se modifican las notificaciones visibles para el usuario que
+     * él aún no había leído; el resto de usuarios no se ven afectados.
+     *
+     * @param username usuario autenticado que realiza la operación.
+     * @param upTo     fecha límite de creación (incluida).
+     * @return Mono con el número de notificaciones encontradas y modificadas.
+     */
+    public Mono<NotificationReadResultDTO> markAllAsRead(String username, Instant upTo) {
+        return markAsRead(username, new Criteria().andOperator(
+                visibleTo(username),
+                Criteria.where("readBy").ne(username),
+                Criteria.where("createdAt").lte(upTo)));
+    }
+
+    /**
+     * Ejecuta un updateMulti que añade el usuario a los lectores de las notificaciones que cumplen el criterio.
+     */
+    private Mono<NotificationReadResultDTO> markAsRead(String username, Criteria criteria) {
+        return reactiveMongoTemplate.updateMulti(new Query(criteria), new Update().addToSet("readBy", username),
+                        Notification.class)
+                .doOnNext(result -> {
+                    if (result.getModifiedCount() > 0) {
+                        dataVersionTracker.markChanged(DataVersionTracker.NOTIFICATIONS);
+                    }
+                })
+                .map(result -> new NotificationReadResultDTO(result.getMatchedCount(), result.getModifiedCount()));
+    }
+
+    /**
+     * Condición de las notificaciones visibles para un usuario: las generales y las dirigidas a él.
+     * Comparar con null incluye también los documentos sin destinatario.
+     */
+    private Criteria visibleTo(String username) {
+        return username == null
+                ? Criteria.where("recipient").is(null)
+                : Criteria.where("recipient").in(null, username);
+    }
+
+    /**
+     * Construye la consulta ordenada por fecha de creación e identificador descendentes,
+     * limitada a las notificaciones visibles para el usuario (generales o dirigidas a él),
+     * con el filtro de lectura y, si hay cursor, la condición para continuar tras él.
+     */
+    private Query buildQuery(String username, Boolean read, NotificationCursor after) {
+        List<Criteria> criteria = new ArrayList<>();
+        criteria.add(visibleTo(username));
+        if (read != null && username != null) {
+            // El estado de lectura es de cada usuario
+            criteria.add(read ? Criteria.where("readBy").is(username) : Criteria.where("readBy").ne(username));
+        } else if (Boolean.TRUE.equals(read)) {
+            // Un usuario anónimo no tiene ninguna notificación leída
+            criteria.add(Criteria.where("id").is(null));
+        }
+        if (after != null) {
+            criteria.add(new Criteria().orOperator(
+                    Criteria.where("createdAt").lt(after.createdAt()),
+                    new Criteria().andOperator(
+                            Criteria.where("createdAt").is(after.createdAt()),
+                            Criteria.where("id").lt(after.id()))));
+        }
+        Query query = new Query(new Criteria().andOperator(criteria));
+        return query.with(Sort.by(Sort.Direction.DESC, "createdAt", "id"));
+    }
+
+    /**
+     * Codifica como cursor opaco la posición de la última notificación de una página.
      */
-    public Flux<NotificationDTO> getAllNotifications() {
-        return notificationRepository.findAll().map(NotificationMapper::toDTO);
+    private String encodeCursor(NotificationDTO last) {
+        String raw = last.getCreatedAt().toEpochMilli() + ":" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
     }
 
+    /**
+     * Decodifica un cursor generado por {@link #encodeCursor(NotificationDTO)}.
+     */
+    private NotificationCursor decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new NotificationCursor(Instant.ofEpochMilli(Long.parseLong(raw.substring(0, separator))),
+                    raw.substring(separator + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor de paginación no válido.", e);
+        }
+    }
+
+    /**
+     * Inserta un conjunto de notificaciones en lotes y las difunde a través de WebSockets.
+     *
+     * @param notifications Flux con los DTOs de las notificaciones a guardar.
+     * @return Flux con el resultado de cada notificación, en el orden de entrada.
+     */
+    public Flux<NotificationBulkResultDTO> saveNotificationsBulk(Flux<NotificationCreateDTO> notifications) {
+        return insertInBatches(notifications.index()
+                .map(tuple -> toBulkItem(tuple.getT1(), tuple.getT2())));
+    }
+
+    /**
+     * Inserta en lotes las notificaciones recibidas en formato NDJSON (un objeto JSON por línea).
+     * Las líneas con JSON no válido se informan como fallidas sin interrumpir la carga.
+     *
+     * @param lines Flux con las líneas del cuerpo de la petición.
+     * @return Flux con el resultado de cada notificación, en el orden de entrada.
+     */
+    public Flux<NotificationBulkResultDTO> saveNotificationsNdjson(Flux<String> lines) {
+        return insertInBatches(lines.filter(line -> !line.isBlank())
+                .index()
+                .map(tuple -> parseLine(tuple.getT1(), tuple.getT2())));
+    }
+
+    /**
+     * Agrupa las notificaciones en lotes y los inserta de uno en uno: no se lee el siguiente
+     * lote hasta que el anterior se ha escrito, lo que aplica contrapresión sobre la entrada.
+     */
+    private Flux<NotificationBulkResultDTO> insertInBatches(Flux<BulkItem> items) {
+        return items.buffer(bulkBatchSize)
+                .concatMap(this::insertBatch);
+    }
+
+    /**
+     * Inserta un lote con una única operación. Si el lote falla, se reintenta cada notificación
+     * por separado para poder informar del resultado individual.
+     */
+    private Flux<NotificationBulkResultDTO> insertBatch(List<BulkItem> batch) {
+        List<BulkItem> valid = batch.stream().filter(item -> item.error() == null).toList();
+        Flux<NotificationBulkResultDTO> rejected = Flux.fromIterable(batch)
+                .filter(item -> item.error() != null)
+                .map(item -> new NotificationBulkResultDTO(item.index(), null, false, item.error()));
+
+        Flux<NotificationBulkResultDTO> inserted = valid.isEmpty()
+                ? Flux.empty()
+                : notificationRepository.insert(valid.stream().map(BulkItem::notification).toList())
+                .thenMany(Flux.fromIterable(valid).map(this::created))
+                .onErrorResume(e -> {
+                    logger.warn("Error al insertar un lote de {} notificaciones, se insertan una a una: {}",
+                            valid.size(), e.getMessage());
+                    return Flux.fromIterable(valid).concatMap(this::insertOne);
+                });
+
+        return Flux.concat(inserted, rejected)
+                .sort(Comparator.comparingLong(NotificationBulkResultDTO::getIndex));
+    }
+
+    /**
+     * Inserta una única notificación del lote.
+     * Como el identificador se asigna antes de insertar, un error de clave duplicada indica
+     * que la notificación ya se escribió en el intento por lotes.
+     */
+    private Mono<NotificationBulkResultDTO> insertOne(BulkItem item) {
+        return notificationRepository.insert(item.notification())
+                .map(saved -> created(item))
+                .onErrorResume(DuplicateKeyException.class, e -> Mono.just(created(item)))
+                .onErrorResume(e -> Mono.just(
+                        new NotificationBulkResultDTO(item.index(), null, false, e.getMessage())));
+    }
+
+    /**
+     * Difunde la notificación insertada y construye su resultado.
+     */
+    private NotificationBulkResultDTO created(BulkItem item) {
+        publish(NotificationMapper.toDTO(item.notification()));
+        return new NotificationBulkResultDTO(item.index(), item.notification().getId(), true, null);
+    }
+
+    /**
+     * Convierte una línea NDJSON en un elemento de la carga masiva.
+     */
+    private BulkItem parseLine(long index, String line) {
+        try {
+            return toBulkItem(index, jsonMapper.readValue(line, NotificationCreateDTO.class));
+        } catch (JacksonException e) {
+            return new BulkItem(index, null, "JSON no válido: " + e.getOriginalMessage());
+        }
+    }
+
+    /**
+     * Valida el DTO y lo convierte en entidad con un identificador ya asignado.
+     */
+    private BulkItem toBulkItem(long index, NotificationCreateDTO notificationCreateDTO) {
+        if (notificationCreateDTO == null
+                || notificationCreateDTO.getSubject() == null || notificationCreateDTO.getSubject().isBlank()
+                || notificationCreateDTO.getMessage() == null || notificationCreateDTO.getMessage().isBlank()) {
+            return new BulkItem(index, null, "El asunto y el mensaje son obligatorios.");
+        }
+        Notification notification = NotificationMapper.toEntity(notificationCreateDTO);
+        notification.setId(new ObjectId().toHexString());
+        return new BulkItem(index, notification, null);
+    }
+
+    /**
+     * Página de notificaciones junto con el cursor para pedir la siguiente (null si es la última).
+     */
+    public record NotificationPage(List<NotificationDTO> content, String nextCursor) {
+    }
+
+    /**
+     * Posición de la última notificación devuelta en una página.
+     */
+    private record NotificationCursor(Instant createdAt, String id) {
+    }
+
+    /**
+     * Notificación de una carga masiva junto con su posición y, si no es válida, el motivo.
+     */
+    private record BulkItem(long index, Notification notification, String error) {
+    }
 }
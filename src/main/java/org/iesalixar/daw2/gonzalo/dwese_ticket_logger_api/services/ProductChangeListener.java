@@ -0,0 +1,51 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.Product;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.utils.AfterCommit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+/**
+ * Listener JPA de la entidad `Product` que mantiene actualizado el índice de autocompletado
+ * y vacía la caché de opciones de producto cada vez que un producto se crea, se modifica o se elimina.
+ * <p>
+ * Ambos se actualizan cuando la transacción se confirma: si la caché se vaciara al hacer el flush,
+ * un formulario mostrado antes del commit volvería a cachear la página antigua, y el índice
+ * sugeriría productos de una transacción que se deshace. Los cambios hechos directamente en la base de datos no pasan por
+ * aquí; los recoge la reconstrucción periódica de {@link ProductSearchService#rebuildIndex()}.
+ */
+@Component
+public class ProductChangeListener {
+
+    // Se inyecta de forma perezosa para evitar el ciclo con el EntityManagerFactory durante el arranque
+    @Autowired
+    @Lazy
+    private ProductSearchService productSearchService;
+
+    @PostPersist
+    @PostUpdate
+    public void onProductSave(Product product) {
+        Long id = product.getId();
+        String name = product.getName();
+        BigDecimal price = product.getPrice();
+        AfterCommit.run(() -> {
+            productSearchService.indexProduct(id, name, price);
+            productSearchService.invalidateProductOptions();
+        });
+    }
+
+    @PostRemove
+    public void onProductRemove(Product product) {
+        Long id = product.getId();
+        AfterCommit.run(() -> {
+            productSearchService.removeProduct(id);
+            productSearchService.invalidateProductOptions();
+        });
+    }
+}
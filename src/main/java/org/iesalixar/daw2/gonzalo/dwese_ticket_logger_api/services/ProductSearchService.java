@@ -0,0 +1,334 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.ProductDTO;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.ProductRepository;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.projections.ProductOption;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.utils.BoundedCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Servicio de búsqueda de productos.
+ * <ul>
+ *     <li>Búsqueda paginada en la base de datos: si todos los términos tienen la longitud mínima
+ *     del índice FULLTEXT se buscan como palabras (en cualquier posición del nombre); si no,
+ *     se busca por prefijo del nombre con el índice ordinario. Nunca se usa LIKE '%texto%'.</li>
+ *     <li>Autocompletado en memoria: un mapa ordenado con el nombre normalizado (sin tildes y en
+ *     minúsculas) a partir del inicio de cada palabra, que resuelve un prefijo con una búsqueda
+ *     por rango sin consultar la base de datos. Se carga al arrancar, se actualiza cuando se
+ *     confirma cada escritura de productos a través de {@link ProductChangeListener} y se
+ *     reconstruye periódicamente para recoger los cambios hechos fuera de la aplicación.</li>
+ *     <li>Opciones de los formularios de tickets: páginas cacheadas de id, nombre y precio,
+ *     opcionalmente filtradas, que se vacían con cualquier escritura de productos.</li>
+ * </ul>
+ */
+@Service
+public class ProductSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchService.class);
+
+    // Longitud mínima de palabra indexada por FULLTEXT en InnoDB (innodb_ft_min_token_size)
+    private static final int FULLTEXT_MIN_TOKEN_SIZE = 3;
+
+    // Separa el texto de la clave del ID del producto, y ordena antes que cualquier otro carácter
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CacheRegistry cacheRegistry;
+
+    // Tamaño máximo y tiempo de vida (en segundos) de la caché de opciones de producto
+    @Value("${reference-cache.max-size:500}")
+    private int cacheMaxSize;
+
+    @Value("${reference-cache.ttl-seconds:300}")
+    private long cacheTtlSeconds;
+
+    // Número de productos por página en el selector de los formularios de tickets
+    @Value("${products.options.page-size:50}")
+    private int optionsPageSize;
+
+    // Tamaño máximo de página de la búsqueda
+    @Value("${products.search.max-page-size:50}")
+    private int maxPageSize;
+
+    // Máximo de sugerencias del autocompletado
+    @Value("${products.typeahead.max-limit:20}")
+    private int maxTypeaheadLimit;
+
+    // Periodo (en minutos) de reconstrucción del índice de autocompletado (0 lo desactiva)
+    @Value("${products.typeahead.rebuild-minutes:10}")
+    private long rebuildMinutes;
+
+    // Número máximo de intentos de una reconstrucción que coincide con cambios confirmados
+    private static final int REBUILD_ATTEMPTS = 3;
+
+    // Clave (nombre normalizado desde el inicio de una palabra + separador + ID) -> producto
+    private final ConcurrentSkipListMap<String, ProductDTO> typeaheadIndex = new ConcurrentSkipListMap<>();
+
+    // Claves de cada producto, para retirarlas al modificarlo o eliminarlo
+    private final ConcurrentHashMap<Long, List<String>> keysByProduct = new ConcurrentHashMap<>();
+
+    // Páginas de opciones de producto por búsqueda y página; se vacía en cada escritura de productos
+    private BoundedCache<PageKey, Page<ProductDTO>> optionPageCache;
+
+    // Versión del índice: aumenta con cada cambio individual para detectar los que se solapan con una reconstrucción
+    private final AtomicLong indexVersion = new AtomicLong();
+
+    private Disposable rebuildSubscription;
+
+    @PostConstruct
+    public void init() {
+        optionPageCache = cacheRegistry.register(new BoundedCache<>("product-options", cacheMaxSize,
+                Duration.ofSeconds(cacheTtlSeconds)));
+    }
+
+    /**
+     * Carga el índice de autocompletado una vez arrancada la aplicación y programa su reconstrucción periódica.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startIndex() {
+        rebuildIndex();
+        if (rebuildMinutes > 0) {
+            Duration period = Duration.ofMinutes(rebuildMinutes);
+            rebuildSubscription = Flux.interval(period, period)
+                    .onBackpressureDrop()
+                    .concatMap(tick -> Mono.fromRunnable(this::rebuildIndex)
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .onErrorResume(e -> {
+                                logger.warn("No se ha podido reconstruir el índice de autocompletado: {}", e.getMessage());
+                                return Mono.empty();
+                            }))
+                    .subscribe();
+        }
+    }
+
+    @PreDestroy
+    public void stopIndex() {
+        if (rebuildSubscription != null) {
+            rebuildSubscription.dispose();
+        }
+    }
+
+    /**
+     * Reconstruye el índice de autocompletado con los productos de la base de datos. Si mientras se
+     * leen se confirma algún cambio individual, la lectura puede no incluirlo y se repite, de modo
+     * que la reconstrucción nunca deshace un cambio más reciente.
+     */
+    public void rebuildIndex() {
+        long start = System.currentTimeMillis();
+        for (int attempt = 1; attempt <= REBUILD_ATTEMPTS; attempt++) {
+            long version = indexVersion.get();
+            List<ProductOption> products = productRepository.findAllOptions();
+            synchronized (this) {
+                if (indexVersion.get() == version) {
+                    typeaheadIndex.clear();
+                    keysByProduct.clear();
+                    products.forEach(product -> addToIndex(product.getId(), product.getName(), product.getPrice()));
+                    optionPageCache.invalidateAll();
+                    logger.info("Índice de autocompletado cargado con {} productos en {} ms.",
+                            products.size(), System.currentTimeMillis() - start);
+                    return;
+                }
+            }
+        }
+        logger.warn("El índice de autocompletado no se ha reconstruido: los productos cambian continuamente; "
+                + "se mantiene el índice actual con los cambios confirmados.");
+    }
+
+    /**
+     * Busca productos por nombre con paginación, usando siempre un índice de la tabla.
+     *
+     * @param query    texto de búsqueda; si está vacío se listan todos los productos.
+     * @param pageable página, tamaño y ordenación; el tamaño se limita a products.search.max-page-size.
+     * @return página de ProductDTO.
+     */
+    public Page<ProductDTO> search(String query, Pageable pageable) {
+        Pageable limited = pageable.getPageSize() > maxPageSize
+                ? PageRequest.of(pageable.getPageNumber(), maxPageSize, pageable.getSort())
+                : pageable;
+        String text = query == null ? "" : query.trim();
+        logger.info("Buscando productos que coincidan con '{}': página {}, tamaño {}",
+                text, limited.getPageNumber(), limited.getPageSize());
+
+        Page<ProductOption> results;
+        if (text.isEmpty()) {
+            results = productRepository.findAllProjectedBy(limited);
+        } else {
+            String terms = toFullTextTerms(text);
+            results = terms != null
+                    ? productRepository.findOptionsByFullText(terms, limited)
+                    : productRepository.findOptionsByNameLike(toPrefixPattern(text), limited);
+        }
+        return results.map(product -> new ProductDTO(product.getId(), product.getName(), product.getPrice()));
+    }
+
+    /**
+     * Obtiene una página de opciones (id, nombre y precio) para el selector de productos de los
+     * formularios de tickets, ordenadas por nombre y opcionalmente filtradas. Las páginas se
+     * cachean, por lo que mostrar un formulario no vuelve a consultar la tabla de productos.
+     *
+     * @param search texto de búsqueda (null o vacío para no filtrar).
+     * @param page   número de página, empezando en 0.
+     * @return página de ProductDTO con products.options.page-size elementos como máximo.
+     */
+    public Page<ProductDTO> getProductOptions(String search, int page) {
+        String normalizedSearch = (search == null || search.isBlank()) ? "" : search.trim().toLowerCase(Locale.ROOT);
+        Pageable pageable = PageRequest.of(Math.max(page, 0), optionsPageSize, Sort.by("name"));
+        return optionPageCache.get(new PageKey(normalizedSearch, pageable),
+                key -> search(key.search(), key.pageable()));
+    }
+
+    /**
+     * Sugiere productos cuyo nombre, o alguna de sus palabras, empieza por el prefijo indicado.
+     * Se resuelve en memoria sin consultar la base de datos.
+     *
+     * @param prefix prefijo escrito por el usuario (no distingue mayúsculas ni tildes).
+     * @param limit  número máximo de sugerencias (se limita a products.typeahead.max-limit).
+     * @return productos sugeridos, ordenados por el texto que coincide.
+     */
+    public List<ProductDTO> typeahead(String prefix, int limit) {
+        String normalized = normalize(prefix == null ? "" : prefix.trim());
+        int max = Math.max(1, Math.min(limit, maxTypeaheadLimit));
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, ProductDTO> suggestions = new LinkedHashMap<>();
+        for (ProductDTO product : typeaheadIndex.subMap(normalized, normalized + Character.MAX_VALUE).values()) {
+            suggestions.putIfAbsent(product.getId(), product);
+            if (suggestions.size() >= max) {
+                break;
+            }
+        }
+        return new ArrayList<>(suggestions.values());
+    }
+
+    /**
+     * Añade o actualiza un producto en el índice de autocompletado. Debe llamarse una vez
+     * confirmada la escritura, para no mostrar productos de transacciones que se deshacen.
+     *
+     * @param id    ID del producto.
+     * @param name  nombre del producto.
+     * @param price precio del producto.
+     */
+    public synchronized void indexProduct(Long id, String name, BigDecimal price) {
+        indexVersion.incrementAndGet();
+        removeFromIndex(id);
+        addToIndex(id, name, price);
+    }
+
+    /**
+     * Elimina un producto del índice de autocompletado. Debe llamarse una vez confirmado el borrado.
+     *
+     * @param id ID del producto.
+     */
+    public synchronized void removeProduct(Long id) {
+        indexVersion.incrementAndGet();
+        removeFromIndex(id);
+    }
+
+    /**
+     * Vacía la caché de opciones de producto de los formularios de tickets.
+     */
+    public void invalidateProductOptions() {
+        optionPageCache.invalidateAll();
+    }
+
+    private void addToIndex(Long id, String name, BigDecimal price) {
+        if (id == null || name == null) {
+            return;
+        }
+        ProductDTO product = new ProductDTO(id, name, price);
+        String normalized = normalize(name);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < normalized.length(); i++) {
+            boolean wordStart = !Character.isWhitespace(normalized.charAt(i))
+                    && (i == 0 || Character.isWhitespace(normalized.charAt(i - 1)));
+            if (wordStart) {
+                String key = normalized.substring(i) + KEY_SEPARATOR + id;
+                typeaheadIndex.put(key, product);
+                keys.add(key);
+            }
+        }
+        keysByProduct.put(id, keys);
+    }
+
+    private void removeFromIndex(Long id) {
+        if (id == null) {
+            return;
+        }
+        List<String> keys = keysByProduct.remove(id);
+        if (keys != null) {
+            keys.forEach(typeaheadIndex::remove);
+        }
+    }
+
+    /**
+     * Convierte el texto en términos booleanos de FULLTEXT ("+palabra*" para cada palabra).
+     *
+     * @return los términos, o null si alguna palabra es más corta que la longitud mínima indexada.
+     */
+    private String toFullTextTerms(String text) {
+        StringBuilder terms = new StringBuilder();
+        for (String word : text.split("\\s+")) {
+            // Se eliminan los operadores de la sintaxis booleana para que no alteren la búsqueda
+            String clean = word.replaceAll("[+\\-<>()~*\"@]", "");
+            if (clean.length() < FULLTEXT_MIN_TOKEN_SIZE) {
+                return null;
+            }
+            terms.append(terms.isEmpty() ? "" : " ").append('+').append(clean).append('*');
+        }
+        return terms.isEmpty() ? null : terms.toString();
+    }
+
+    /**
+     * Escapa los comodines de LIKE y añade '%' al final para buscar por prefijo.
+     */
+    private String toPrefixPattern(String text) {
+        return text.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+    }
+
+    /**
+     * Normaliza un texto para el autocompletado: sin tildes y en minúsculas.
+     */
+    private String normalize(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Clave de la caché de opciones: texto de búsqueda normalizado y paginación solicitada.
+     */
+    private record PageKey(String search, Pageable pageable) {
+    }
+}
@@ -0,0 +1,180 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services;
+
+import jakarta.annotation.PostConstruct;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.ProvinceCreateDTO;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.ProvinceDTO;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.Province;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.mappers.ProvinceMapper;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.ProvinceRepository;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.projections.ProvinceSummary;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.utils.BoundedCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+
+@Service
+public class ProvinceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProvinceService.class);
+
+    @Autowired
+    private ProvinceRepository provinceRepository;
+
+    @Autowired
+    private ProvinceMapper provinceMapper;
+
+    @Autowired
+    private MessageSource messageSource;
+
+    @Autowired
+    private CacheRegistry cacheRegistry;
+
+    // Tamaño máximo y tiempo de vida (en segundos) de las cachés de provincias
+    @Value("${reference-cache.max-size:500}")
+    private int cacheMaxSize;
+
+    @Value("${reference-cache.ttl-seconds:300}")
+    private long cacheTtlSeconds;
+
+    // Cachés de provincias por ID y por búsqueda y página; se vacían en cada modificación
+    private BoundedCache<Long, ProvinceDTO> provinceByIdCache;
+    private BoundedCache<PageKey, Page<ProvinceDTO>> provincePageCache;
+
+    @PostConstruct
+    public void init() {
+        Duration ttl = Duration.ofSeconds(cacheTtlSeconds);
+        provinceByIdCache = cacheRegistry.register(new BoundedCache<>("provinces-by-id", cacheMaxSize, ttl));
+        provincePageCache = cacheRegistry.register(new BoundedCache<>("province-pages", cacheMaxSize, ttl));
+    }
+
+    /**
+     * Obtiene las provincias con paginación, opcionalmente filtradas por nombre.
+     * Solo se consultan las columnas id, code y name mediante una proyección.
+     *
+     * @param search   Texto a buscar en el nombre (null o vacío para no filtrar).
+     * @param pageable Objeto de paginación que define la página, el tamaño y la ordenación.
+     * @return Página de ProvinceDTO
+     */
+    public Page<ProvinceDTO> getAllProvinces(String search, Pageable pageable) {
+        logger.info("Solicitando provincias con paginación: página {}, tamaño {}, búsqueda '{}'",
+                pageable.getPageNumber(), pageable.getPageSize(), search);
+        try {
+            String normalizedSearch = (search == null || search.isBlank()) ? "" : search.trim().toLowerCase();
+            return provincePageCache.get(new PageKey(normalizedSearch, pageable), key -> {
+                Page<ProvinceSummary> provinces = key.search().isEmpty()
+                        ? provinceRepository.findAllProjectedBy(key.pageable())
+                        : provinceRepository.findByNameContainingIgnoreCase(key.search(), key.pageable());
+                logger.info("Se han encontrado {} provincias en la página actual.", provinces.getNumberOfElements());
+                return provinces.map(provinceMapper::toDTO);
+            });
+        } catch (Exception e) {
+            logger.error("Error al obtener la lista paginada de provincias: {}", e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Busca una provincia específica por su ID.
+     *
+     * @param id Identificador único de la provincia.
+     * @return Un Optional que contiene un 'ProvinceDTO' si la provincia existe.
+     */
+    public Optional<ProvinceDTO> getProvinceById(Long id) {
+        try {
+            logger.info("Buscando provincia con ID {}...", id);
+            return Optional.ofNullable(provinceByIdCache.get(id,
+                    key -> provinceRepository.findProjectedById(key).map(provinceMapper::toDTO).orElse(null)));
+        } catch (Exception e) {
+            logger.error("Error al buscar provincia con ID {}: {}", id, e.getMessage());
+            throw new RuntimeException("Error al buscar la provincia.", e);
+        }
+    }
+
+    /**
+     * Crea una nueva provincia en la base de datos.
+     *
+     * @param provinceCreateDTO DTO que contiene los datos de la provincia a crear.
+     * @param locale            Idioma para los mensajes de error.
+     * @return DTO de la provincia creada.
+     * @throws IllegalArgumentException Si el código ya existe.
+     */
+    public ProvinceDTO createProvince(ProvinceCreateDTO provinceCreateDTO, Locale locale) {
+        if (provinceRepository.existsProvinceByCode(provinceCreateDTO.getCode())) {
+            String errorMessage = messageSource.getMessage("msg.province-controller.insert.codeExist", null, locale);
+            throw new IllegalArgumentException(errorMessage);
+        }
+
+        Province savedProvince = provinceRepository.save(provinceMapper.toEntity(provinceCreateDTO));
+        invalidateCaches();
+        logger.info("Provincia creada exitosamente con ID {}", savedProvince.getId());
+        return provinceMapper.toDTO(savedProvince);
+    }
+
+    /**
+     * Actualiza una provincia existente.
+     *
+     * @param id                Identificador de la provincia a actualizar.
+     * @param provinceCreateDTO DTO que contiene los nuevos datos de la provincia.
+     * @param locale            Idioma para los mensajes de error.
+     * @return DTO de la provincia actualizada.
+     * @throws IllegalArgumentException Si la provincia no existe o el código ya está en uso.
+     */
+    public ProvinceDTO updateProvince(Long id, ProvinceCreateDTO provinceCreateDTO, Locale locale) {
+        logger.info("Actualizando provincia con ID {}", id);
+        Province existingProvince = provinceRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("La provincia no existe."));
+
+        if (provinceRepository.existsProvinceByCodeAndNotId(provinceCreateDTO.getCode(), id)) {
+            String errorMessage = messageSource.getMessage("msg.province-controller.update.codeExist", null, locale);
+            throw new IllegalArgumentException(errorMessage);
+        }
+
+        existingProvince.setCode(provinceCreateDTO.getCode());
+        existingProvince.setName(provinceCreateDTO.getName());
+        Province updatedProvince = provinceRepository.save(existingProvince);
+        invalidateCaches();
+        logger.info("Provincia con ID {} actualizada exitosamente", updatedProvince.getId());
+
+        return provinceMapper.toDTO(updatedProvince);
+    }
+
+    /**
+     * Elimina una provincia específica por su ID.
+     *
+     * @param id identificador único de la provincia.
+     * @throws IllegalArgumentException Si la provincia no existe.
+     */
+    public void deleteProvince(Long id) {
+        logger.info("Buscando provincia con ID {}", id);
+        if (!provinceRepository.existsById(id)) {
+            throw new IllegalArgumentException("La provincia no existe.");
+        }
+        provinceRepository.deleteById(id);
+        invalidateCaches();
+        logger.info("Provincia con ID {} eliminada exitosamente.", id);
+    }
+
+    /**
+     * Vacía las cachés de provincias tras una modificación.
+     * Se vacían por completo porque un cambio puede alterar el contenido y el orden de cualquier página.
+     */
+    private void invalidateCaches() {
+        provinceByIdCache.invalidateAll();
+        provincePageCache.invalidateAll();
+    }
+
+    /**
+     * Clave de la caché de páginas: texto de búsqueda normalizado y paginación solicitada.
+     */
+    private record PageKey(String search, Pageable pageable) {
+    }
+}
@@ -8,7 +8,10 @@ import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.mappers.RegionMapper;
 import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.RegionRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.annotation.PostConstruct;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.utils.BoundedCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -17,6 +20,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.PathVariable;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
@@ -37,6 +41,27 @@ public class RegionService {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private CacheRegistry cacheRegistry;
+
+    // Tamaño máximo y tiempo de vida (en segundos) de las cachés de regiones
+    @Value("${reference-cache.max-size:500}")
+    private int cacheMaxSize;
+
+    @Value("${reference-cache.ttl-seconds:300}")
+    private long cacheTtlSeconds;
+
+    // Cachés de regiones por ID y por página (número, tamaño y ordenación); se vacían en cada modificación
+    private BoundedCache<Long, RegionDTO> regionByIdCache;
+    private BoundedCache<Pageable, Page<RegionDTO>> regionPageCache;
+
+    @PostConstruct
+    public void init() {
+        Duration ttl = Duration.ofSeconds(cacheTtlSeconds);
+        regionByIdCache = cacheRegistry.register(new BoundedCache<>("regions-by-id", cacheMaxSize, ttl));
+        regionPageCache = cacheRegistry.register(new BoundedCache<>("region-pages", cacheMaxSize, ttl));
+    }
+
     /**
      * Obtiene todas las regiones con paginación y las convierte en una página de RegionDTO.
      *
@@ -49,9 +74,11 @@ public class RegionService {
         logger.info("Solicitando todas las regiones con paginación: página {}, tamaño{}",
             pageable.getPageNumber(), pageable.getPageSize());
         try{
-            Page<Region> regions = regionRepository.findAll(pageable);
-            logger.info("Se han encontrado {} regiones en la página actual.", regions.getNumberOfElements());
-            return regions.map(regionMapper::toDTO);
+            return regionPageCache.get(pageable, key -> {
+                Page<Region> regions = regionRepository.findAll(key);
+                logger.info("Se han encontrado {} regiones en la página actual.", regions.getNumberOfElements());
+                return regions.map(regionMapper::toDTO);
+            });
         } catch (Exception e) {
             logger.error("Error al obtener la lista paginada de regiones: {}", e.getMessage());
             throw e;
@@ -69,7 +96,8 @@ public class RegionService {
     public Optional<RegionDTO> getRegionById(Long id) {
         try {
             logger.info("Buscando región con ID {}...");
-            return regionRepository.findById(id).map(regionMapper::toDTO);
+            return Optional.ofNullable(regionByIdCache.get(id,
+                    key -> regionRepository.findById(key).map(regionMapper::toDTO).orElse(null)));
         } catch (Exception e) {
             logger.error("Error al buscar región con ID {}: {}", id, e.getMessage());
             throw new RuntimeException("Error al buscar la región.", e);
@@ -109,6 +137,7 @@ public class RegionService {
         region.setImage(fileName);
 
         Region savedRegion = regionRepository.save(region);
+        invalidateCaches();
         logger.info("Región creada exitosamente con ID {}", savedRegion.getId());
         // Se devuelve el DTO
         return regionMapper.toDTO(savedRegion);
@@ -150,6 +179,7 @@ public class RegionService {
         existingRegion.setImage(fileName);
         // Guardar los cambios
         Region updatedRegion = regionRepository.save(existingRegion);
+        invalidateCaches();
         logger.info("Región con ID {} actualizada exitosamente", updatedRegion.getId());
 
         return regionMapper.toDTO(updatedRegion);
@@ -177,6 +207,16 @@ public class RegionService {
 
         // Eliminar la región
         regionRepository.deleteById(id);
+        invalidateCaches();
         logger.info("Región con ID {} eliminada exitosamente.", id);
     }
+
+    /**
+     * Vacía las cachés de regiones tras una modificación.
+     * Se vacían por completo porque un cambio puede alterar el contenido y el orden de cualquier página.
+     */
+    private void invalidateCaches() {
+        regionByIdCache.invalidateAll();
+        regionPageCache.invalidateAll();
+    }
 }
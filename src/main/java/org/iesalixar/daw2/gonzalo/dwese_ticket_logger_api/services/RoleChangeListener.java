@@ -0,0 +1,39 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.Role;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.utils.AfterCommit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listener JPA de la entidad `Role` que mantiene actualizado el registro de autoridades
+ * cuando se crean, modifican o eliminan roles.
+ * <p>
+ * Los cambios se aplican cuando la transacción se confirma, para que una transacción deshecha
+ * no deje en el registro un rol que no existe (o quite uno que sigue existiendo).
+ */
+@Component
+public class RoleChangeListener {
+
+    // Se inyecta de forma perezosa para evitar el ciclo con el EntityManagerFactory durante el arranque
+    @Autowired
+    @Lazy
+    private AuthorityRegistry authorityRegistry;
+
+    @PostPersist
+    @PostUpdate
+    public void onRoleSave(Role role) {
+        String roleName = role.getName();
+        AfterCommit.run(() -> authorityRegistry.register(roleName));
+    }
+
+    @PostRemove
+    public void onRoleRemove(Role role) {
+        String roleName = role.getName();
+        AfterCommit.run(() -> authorityRegistry.unregister(roleName));
+    }
+}
@@ -0,0 +1,176 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services;
+
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.TicketDTO;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.TicketSummaryDTO;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.TicketTotalsDTO;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.Product;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.Ticket;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.mappers.TicketMapper;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.ProductRepository;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.TicketRepository;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.projections.TicketSummary;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.repositories.projections.TicketTotals;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class TicketService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TicketService.class);
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TicketMapper ticketMapper;
+
+    /**
+     * Obtiene los tickets con paginación junto con sus productos.
+     * Se hacen siempre dos consultas (más la del total), sea cual sea el tamaño de la página:
+     * una para los identificadores de la página y otra que carga esos tickets con sus productos.
+     * Los tickets eliminados entre ambas consultas se omiten de la página.
+     *
+     * @param pageable Objeto de paginación que define la página, el tamaño y la ordenación.
+     * @return Página de TicketDTO
+     */
+    public Page<TicketDTO> getAllTickets(Pageable pageable) {
+        logger.info("Solicitando tickets con paginación: página {}, tamaño {}",
+                pageable.getPageNumber(), pageable.getPageSize());
+        try {
+            Page<Long> ids = ticketRepository.findIds(pageable);
+            if (ids.isEmpty()) {
+                return ids.map(id -> null);
+            }
+            Map<Long, Ticket> tickets = ticketRepository.findWithProductsByIdIn(ids.getContent()).stream()
+                    .collect(Collectors.toMap(Ticket::getId, Function.identity()));
+            logger.info("Se han encontrado {} tickets en la página actual.", tickets.size());
+            // Se respeta el orden de la página de identificadores
+            List<TicketDTO> content = ids.getContent().stream()
+                    .map(tickets::get)
+                    .filter(Objects::nonNull)
+                    .map(ticketMapper::toDTO)
+                    .toList();
+            return new PageImpl<>(content, ids.getPageable(), ids.getTotalElements());
+        } catch (Exception e) {
+            logger.error("Error al obtener la lista paginada de tickets: {}", e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Busca un ticket específico por su ID junto con sus productos.
+     *
+     * @param id Identificador único del ticket.
+     * @return Un Optional que contiene un 'TicketDTO' si el ticket existe.
+     */
+    public Optional<TicketDTO> getTicketById(Long id) {
+        logger.info("Buscando ticket con ID {}...", id);
+        return ticketRepository.findWithProductsById(id).map(ticketMapper::toDTO);
+    }
+
+    /**
+     * Obtiene los totales de una página de tickets calculados en la base de datos.
+     *
+     * @param pageable Objeto de paginación que define la página, el tamaño y la ordenación.
+     * @return Página de TicketTotalsDTO
+     */
+    public Page<TicketTotalsDTO> getTicketTotals(Pageable pageable) {
+        logger.info("Calculando totales de tickets: página {}, tamaño {}",
+                pageable.getPageNumber(), pageable.getPageSize());
+        return ticketRepository.findTotals(pageable).map(this::toTotalsDTO);
+    }
+
+    /**
+     * Obtiene los totales de un ticket calculados en la base de datos.
+     *
+     * @param id Identificador único del ticket.
+     * @return Un Optional con los totales si el ticket existe.
+     */
+    public Optional<TicketTotalsDTO> getTicketTotalsById(Long id) {
+        return ticketRepository.findTotalsById(id).map(this::toTotalsDTO);
+    }
+
+    /**
+     * Obtiene los totales agregados de todos los tickets calculados en la base de datos.
+     *
+     * @return TicketSummaryDTO con el número de tickets y productos y los importes.
+     */
+    public TicketSummaryDTO getTicketSummary() {
+        TicketSummary summary = ticketRepository.findSummary();
+        return new TicketSummaryDTO(summary.getTicketCount(), summary.getProductCount(),
+                summary.getSubtotal(), summary.getTotal());
+    }
+
+    /**
+     * Añade un producto existente a un ticket insertando directamente la fila de product_ticket,
+     * sin cargar el ticket ni su lista de productos.
+     *
+     * @param ticketId  ID del ticket.
+     * @param productId ID del producto.
+     * @return true si se ha añadido, false si el ticket o el producto no existen.
+     * @throws org.springframework.dao.DataIntegrityViolationException si el producto ya está en el ticket.
+     */
+    @Transactional
+    public boolean addProduct(Long ticketId, Long productId) {
+        return ticketRepository.addProduct(ticketId, productId) > 0;
+    }
+
+    /**
+     * Crea un producto y lo añade a un ticket. Las comprobaciones (el ticket existe y no tiene
+     * ya un producto con ese nombre) se hacen con consultas en la base de datos.
+     *
+     * @param ticketId ID del ticket.
+     * @param name     Nombre del nuevo producto.
+     * @param price    Precio del nuevo producto.
+     * @return true si se ha añadido, false si el ticket no existe.
+     * @throws IllegalArgumentException si el ticket ya tiene un producto con ese nombre.
+     */
+    @Transactional
+    public boolean addNewProduct(Long ticketId, String name, BigDecimal price) {
+        if (!ticketRepository.existsById(ticketId)) {
+            return false;
+        }
+        if (ticketRepository.countProductsByName(ticketId, name) > 0) {
+            throw new IllegalArgumentException("El producto con el nombre especificado ya está asociado al ticket.");
+        }
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(price);
+        productRepository.save(product);
+        return ticketRepository.addProduct(ticketId, product.getId()) > 0;
+    }
+
+    /**
+     * Quita un producto de un ticket borrando directamente la fila de product_ticket.
+     *
+     * @param ticketId  ID del ticket.
+     * @param productId ID del producto.
+     * @return true si se ha quitado, false si el producto no estaba en el ticket.
+     */
+    @Transactional
+    public boolean removeProduct(Long ticketId, Long productId) {
+        return ticketRepository.removeProduct(ticketId, productId) > 0;
+    }
+
+    private TicketTotalsDTO toTotalsDTO(TicketTotals totals) {
+        return new TicketTotalsDTO(totals.getTicketId(), totals.getProductCount(),
+                totals.getSubtotal(), totals.getDiscount(), totals.getTotal());
+    }
+}
@@ -0,0 +1,204 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.utils.JwtUtil;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.utils.VerifiedJwt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Servicio que mantiene el conjunto de usuarios revocados.
+ * Cuando un usuario se deshabilita o se elimina, los tokens emitidos antes de ese momento
+ * dejan de aceptarse aunque su firma siga siendo válida.
+ * <p>
+ * Cada revocación solo necesita recordarse mientras puedan existir tokens emitidos antes de ella,
+ * por lo que caduca pasado el tiempo de vida de los tokens, nunca por tamaño: descartar una
+ * revocación volvería a dar acceso al usuario. Las revocaciones se guardan en MongoDB (con un
+ * índice TTL) para compartirlas entre todas las instancias de la API, y cada nodo mantiene una
+ * copia en memoria que sincroniza periódicamente.
+ * <p>
+ * El servicio falla de forma segura: si la copia en memoria está llena o no se ha podido
+ * sincronizar recientemente, {@link #requiresUserCheck()} indica que no basta con los claims
+ * del token y que el usuario debe comprobarse en la base de datos.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    // Número de periodos de sincronización fallidos tras los que la copia local deja de considerarse fiable
+    private static final int MAX_MISSED_SYNCS = 3;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    // Número máximo de usuarios revocados que se recuerdan en memoria
+    @Value("${jwt.revocation.max-size:10000}")
+    private int revocationMaxSize;
+
+    // Colección de MongoDB compartida por todos los nodos
+    @Value("${jwt.revocation.collection:revoked_users}")
+    private String revocationCollection;
+
+    // Periodo (en segundos) con el que se leen las revocaciones hechas en otros nodos
+    @Value("${jwt.revocation.sync-seconds:5}")
+    private long syncSeconds;
+
+    // Margen (en segundos) hacia atrás de cada lectura, para tolerar el desfase entre relojes de los nodos
+    @Value("${jwt.revocation.sync-overlap-seconds:60}")
+    private long syncOverlapSeconds;
+
+    // Usuario -> instante de la revocación
+    private final Map<String, Instant> revokedUsers = new ConcurrentHashMap<>();
+
+    // Hasta cuándo pueden existir tokens de una revocación que no cabía en memoria
+    private volatile Instant overflowUntil = Instant.EPOCH;
+
+    // Instante desde el que se leen las revocaciones y momento de la última sincronización correcta
+    private volatile Instant syncedUpTo = Instant.EPOCH;
+    private volatile Instant lastSuccessfulSync = Instant.EPOCH;
+
+    private Disposable syncSubscription;
+
+    @PostConstruct
+    public void init() {
+        reactiveMongoTemplate.indexOps(revocationCollection)
+                .createIndex(new Index().on("expiresAt", Sort.Direction.ASC).expire(Duration.ZERO).named("expiresAt_ttl"))
+                .then(reactiveMongoTemplate.indexOps(revocationCollection)
+                        .createIndex(new Index().on("revokedAt", Sort.Direction.ASC).named("revokedAt")))
+                .subscribe(name -> { }, error -> logger.error("Error al crear los índices de revocaciones", error));
+
+        syncSubscription = Flux.interval(Duration.ZERO, Duration.ofSeconds(syncSeconds))
+                .onBackpressureDrop()
+                .concatMap(tick -> sync().onErrorResume(e -> {
+                    logger.warn("No se han podido sincronizar las revocaciones de tokens: {}", e.getMessage());
+                    return Mono.empty();
+                }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (syncSubscription != null) {
+            syncSubscription.dispose();
+        }
+    }
+
+    /**
+     * Revoca todos los tokens emitidos hasta ahora para el usuario indicado, en este nodo
+     * y, a través de MongoDB, en el resto.
+     *
+     * @param username nombre del usuario a revocar.
+     */
+    public void revokeUser(String username) {
+        logger.info("Revocando los tokens emitidos para el usuario {}", username);
+        Instant revokedAt = Instant.now();
+        remember(username, revokedAt);
+        Document revocation = new Document("_id", username)
+                .append("revokedAt", Date.from(revokedAt))
+                .append("expiresAt", Date.from(expiresAt(revokedAt)));
+        reactiveMongoTemplate.getCollection(revocationCollection)
+                .flatMap(collection -> Mono.from(collection.replaceOne(Filters.eq("_id", username), revocation,
+                        new ReplaceOptions().upsert(true))))
+                .subscribe(result -> { }, error -> logger.error(
+                        "No se ha podido compartir la revocación del usuario {} con el resto de nodos", username, error));
+    }
+
+    /**
+     * Comprueba si un token verificado pertenece a un usuario revocado después de su emisión.
+     *
+     * @param verifiedJwt token ya verificado.
+     * @return true si el token debe rechazarse.
+     */
+    public boolean isRevoked(VerifiedJwt verifiedJwt) {
+        Instant revokedAt = revokedUsers.get(verifiedJwt.username());
+        if (revokedAt == null || !expiresAt(revokedAt).isAfter(Instant.now())) {
+            return false;
+        }
+        // El claim "iat" tiene precisión de segundos, así que un token del mismo segundo también se rechaza
+        return verifiedJwt.issuedAt() == null || !verifiedJwt.issuedAt().isAfter(revokedAt);
+    }
+
+    /**
+     * Indica si el conjunto de revocaciones en memoria puede estar incompleto: alguna revocación
+     * aún vigente no cupo en memoria, o la última sincronización correcta es demasiado antigua.
+     * En ese caso el usuario de cada token debe comprobarse en la base de datos.
+     *
+     * @return true si no basta con los claims del token.
+     */
+    public boolean requiresUserCheck() {
+        Instant now = Instant.now();
+        return now.isBefore(overflowUntil)
+                || lastSuccessfulSync.plusSeconds(syncSeconds * MAX_MISSED_SYNCS).isBefore(now);
+    }
+
+    /**
+     * Lee las revocaciones registradas desde la última sincronización (con un margen hacia atrás)
+     * y elimina de memoria las que ya han caducado.
+     */
+    private Mono<Void> sync() {
+        Instant startedAt = Instant.now();
+        Instant since = syncedUpTo.minusSeconds(syncOverlapSeconds);
+        return reactiveMongoTemplate.getCollection(revocationCollection)
+                .flatMapMany(collection -> Flux.from(collection.find(Filters.and(
+                        Filters.gte("revokedAt", Date.from(since)),
+                        Filters.gt("expiresAt", Date.from(startedAt))))))
+                .doOnNext(document -> remember(document.getString("_id"), document.getDate("revokedAt").toInstant()))
+                .then(Mono.fromRunnable(() -> {
+                    revokedUsers.values().removeIf(revokedAt -> !expiresAt(revokedAt).isAfter(Instant.now()));
+                    syncedUpTo = startedAt;
+                    lastSuccessfulSync = startedAt;
+                }));
+    }
+
+    /**
+     * Guarda la revocación en memoria, conservando la más reciente de cada usuario. Si no cabe,
+     * no se descarta ninguna: se exige comprobar los usuarios en la base de datos hasta que
+     * caduquen los tokens afectados.
+     */
+    private void remember(String username, Instant revokedAt) {
+        if (!expiresAt(revokedAt).isAfter(Instant.now())) {
+            return;
+        }
+        if (!revokedUsers.containsKey(username) && revokedUsers.size() >= revocationMaxSize) {
+            markOverflow(revokedAt);
+            return;
+        }
+        revokedUsers.merge(username, revokedAt, (current, added) -> added.isAfter(current) ? added : current);
+    }
+
+    private synchronized void markOverflow(Instant revokedAt) {
+        Instant until = expiresAt(revokedAt);
+        if (until.isAfter(overflowUntil)) {
+            logger.warn("Conjunto de usuarios revocados lleno ({} entradas): los usuarios se comprobarán "
+                    + "en la base de datos hasta {}", revocationMaxSize, until);
+            overflowUntil = until;
+        }
+    }
+
+    private Instant expiresAt(Instant revokedAt) {
+        return revokedAt.plusMillis(jwtUtil.getExpirationMillis());
+    }
+}
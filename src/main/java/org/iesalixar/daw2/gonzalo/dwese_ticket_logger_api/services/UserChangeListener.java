@@ -0,0 +1,56 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services;
+
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.User;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.utils.AfterCommit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listener JPA de la entidad `User` que mantiene coherente la autenticación por JWT.
+ * Cada vez que un usuario se actualiza (por ejemplo, se deshabilita o cambian sus roles)
+ * o se elimina, se expulsa de la caché de principales para que la siguiente petición lo
+ * vuelva a cargar. Si el usuario queda deshabilitado o se elimina, además se revocan sus tokens.
+ * <p>
+ * Ambas acciones se aplican cuando la transacción se confirma: si se aplicaran al hacer el flush,
+ * una transacción deshecha dejaría al usuario revocado hasta que caducaran sus tokens, y una
+ * petición entre el flush y el commit volvería a cachear los datos antiguos.
+ * <p>
+ * Los cambios hechos directamente en la base de datos no pasan por aquí; para esos casos
+ * el tiempo de vida de la caché limita cuánto tiempo pueden quedar datos obsoletos.
+ */
+@Component
+public class UserChangeListener {
+
+    // Se inyectan de forma perezosa para evitar el ciclo con el EntityManagerFactory durante el arranque
+    @Autowired
+    @Lazy
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    @Lazy
+    private TokenRevocationService tokenRevocationService;
+
+    @PostUpdate
+    public void onUserUpdate(User user) {
+        String username = user.getUsername();
+        boolean enabled = user.isEnabled();
+        AfterCommit.run(() -> {
+            userDetailsService.evictUser(username);
+            if (!enabled) {
+                tokenRevocationService.revokeUser(username);
+            }
+        });
+    }
+
+    @PostRemove
+    public void onUserRemove(User user) {
+        String username = user.getUsername();
+        AfterCommit.run(() -> {
+            userDetailsService.evictUser(username);
+            tokenRevocationService.revokeUser(username);
+        });
+    }
+}
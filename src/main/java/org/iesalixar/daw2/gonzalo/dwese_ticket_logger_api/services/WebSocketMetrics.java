@@ -0,0 +1,99 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services;
+
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.WebSocketStatsDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.config.WebSocketMessageBrokerStats;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Métricas de los canales WebSocket y políticas de rechazo de sus ejecutores.
+ * <ul>
+ *     <li>Canal de entrada: si la cola se llena, el mensaje se procesa en el hilo del propio
+ *     cliente que lo envía, de modo que solo se frena a ese cliente.</li>
+ *     <li>Canal de salida: si la cola se llena, el mensaje se descarta y se cuenta, en lugar de
+ *     bloquear al broker o lanzar una excepción al difundir al resto de clientes.</li>
+ * </ul>
+ */
+@Service
+public class WebSocketMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketMetrics.class);
+
+    // Se inyecta de forma perezosa porque se crea junto con la configuración del broker
+    @Autowired
+    @Lazy
+    private WebSocketMessageBrokerStats webSocketMessageBrokerStats;
+
+    @Autowired
+    @Lazy
+    private NotificationBroadcaster notificationBroadcaster;
+
+    private final AtomicLong inboundCallerRuns = new AtomicLong();
+    private final AtomicLong outboundDropped = new AtomicLong();
+
+    private volatile ThreadPoolTaskExecutor inboundExecutor;
+    private volatile ThreadPoolTaskExecutor outboundExecutor;
+
+    /**
+     * Registra los ejecutores de los canales para poder consultar su ocupación.
+     *
+     * @param inbound  ejecutor del canal de entrada.
+     * @param outbound ejecutor del canal de salida.
+     */
+    public void registerExecutors(ThreadPoolTaskExecutor inbound, ThreadPoolTaskExecutor outbound) {
+        this.inboundExecutor = inbound;
+        this.outboundExecutor = outbound;
+    }
+
+    /**
+     * Política de rechazo del canal de entrada: ejecuta el mensaje en el hilo que lo envía.
+     */
+    public RejectedExecutionHandler inboundRejectionHandler() {
+        return (task, executor) -> {
+            inboundCallerRuns.incrementAndGet();
+            if (!executor.isShutdown()) {
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * Política de rechazo del canal de salida: descarta el mensaje y lo cuenta.
+     */
+    public RejectedExecutionHandler outboundRejectionHandler() {
+        return (task, executor) -> {
+            long dropped = outboundDropped.incrementAndGet();
+            logger.debug("Cola del canal de salida llena; mensajes descartados: {}", dropped);
+        };
+    }
+
+    /**
+     * Obtiene las métricas actuales de sesiones y canales.
+     *
+     * @return WebSocketStatsDTO con los valores en este momento.
+     */
+    public WebSocketStatsDTO getStats() {
+        SubProtocolWebSocketHandler.Stats sessions = webSocketMessageBrokerStats.getWebSocketSessionStats();
+        ThreadPoolTaskExecutor inbound = inboundExecutor;
+        ThreadPoolTaskExecutor outbound = outboundExecutor;
+        return new WebSocketStatsDTO(
+                sessions != null ? sessions.getWebSocketSessions() : 0,
+                sessions != null ? sessions.getLimitExceededSessions() : 0,
+                sessions != null ? sessions.getTransportErrorSessions() : 0,
+                inbound != null ? inbound.getQueueSize() : 0,
+                inbound != null ? inbound.getActiveCount() : 0,
+                inboundCallerRuns.get(),
+                outbound != null ? outbound.getQueueSize() : 0,
+                outbound != null ? outbound.getActiveCount() : 0,
+                outboundDropped.get(),
+                notificationBroadcaster.getDroppedNotifications());
+    }
+}
@@ -0,0 +1,38 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Ejecuta acciones cuando se confirma la transacción actual.
+ * <p>
+ * Lo usan los listeners JPA que actualizan cachés o registros en memoria: los callbacks
+ * {@code @PostPersist}, {@code @PostUpdate} y {@code @PostRemove} se ejecutan al hacer el flush,
+ * antes del commit, y aplicar ahí los cambios dejaría el estado en memoria alterado si la
+ * transacción se deshace, o permitiría que una lectura entre el flush y el commit volviera
+ * a cachear los datos antiguos.
+ */
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    /**
+     * Ejecuta la acción cuando se confirme la transacción actual, o inmediatamente si no hay ninguna.
+     * Si la transacción se deshace, la acción no se ejecuta.
+     *
+     * @param action acción a ejecutar.
+     */
+    public static void run(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
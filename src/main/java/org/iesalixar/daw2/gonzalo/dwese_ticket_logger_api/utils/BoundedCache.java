@@ -0,0 +1,202 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.utils;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Caché en memoria acotada por número de entradas y por tiempo de vida.
+ * Cuando se alcanza el tamaño máximo se descarta la entrada usada hace más tiempo (LRU)
+ * y las entradas caducadas se eliminan al intentar leerlas.
+ * <p>
+ * Es segura para su uso concurrente. Lleva la cuenta de aciertos, fallos y expulsiones
+ * para poder vigilar su efectividad.
+ *
+ * @param <K> tipo de la clave.
+ * @param <V> tipo del valor almacenado.
+ */
+public class BoundedCache<K, V> {
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlMillis;
+
+    // LinkedHashMap en orden de acceso: la primera entrada es siempre la menos usada recientemente
+    private final LinkedHashMap<K, CacheEntry<V>> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    // Generación de la caché: aumenta con cada invalidación para descartar valores calculados antes de ella
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Crea una caché acotada.
+     *
+     * @param name    nombre descriptivo de la caché (para logs y estadísticas).
+     * @param maxSize número máximo de entradas que puede contener.
+     * @param ttl     tiempo de vida por defecto de cada entrada.
+     */
+    public BoundedCache(String name, int maxSize, Duration ttl) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("El tamaño máximo de la caché debe ser mayor que 0.");
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                if (size() > BoundedCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Obtiene el valor asociado a la clave si existe y no ha caducado.
+     *
+     * @param key clave a buscar.
+     * @return el valor almacenado o null si no está en la caché.
+     */
+    public V get(K key) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            CacheEntry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt() > now) {
+                    hits.incrementAndGet();
+                    return entry.value();
+                }
+                // La entrada ha caducado: se elimina
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Obtiene el valor asociado a la clave o lo calcula con la función indicada si no está en la caché.
+     * La función se ejecuta fuera del bloqueo, por lo que dos hilos podrían calcular el mismo valor a la vez.
+     * Si la caché se invalida mientras se calcula, el valor se devuelve pero no se almacena, ya que
+     * pudo calcularse con datos anteriores a la invalidación. Los valores nulos no se almacenan.
+     *
+     * @param key    clave a buscar.
+     * @param loader función que calcula el valor en caso de fallo.
+     * @return el valor almacenado o el recién calculado.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        long loadGeneration = generation.get();
+        V value = get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            if (value != null) {
+                long expiresAt = System.currentTimeMillis() + ttlMillis;
+                synchronized (entries) {
+                    if (generation.get() == loadGeneration) {
+                        entries.put(key, new CacheEntry<>(value, expiresAt));
+                    }
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Guarda un valor con el tiempo de vida por defecto.
+     *
+     * @param key   clave.
+     * @param value valor a guardar.
+     */
+    public void put(K key, V value) {
+        put(key, value, System.currentTimeMillis() + ttlMillis);
+    }
+
+    /**
+     * Guarda un valor con un instante de caducidad concreto.
+     * El instante nunca supera el tiempo de vida por defecto de la caché.
+     *
+     * @param key       clave.
+     * @param value     valor a guardar.
+     * @param expiresAt instante de caducidad en milisegundos desde epoch.
+     */
+    public void put(K key, V value, long expiresAt) {
+        long maxExpiresAt = System.currentTimeMillis() + ttlMillis;
+        synchronized (entries) {
+            entries.put(key, new CacheEntry<>(value, Math.min(expiresAt, maxExpiresAt)));
+        }
+    }
+
+    /**
+     * Elimina la entrada asociada a la clave.
+     *
+     * @param key clave a eliminar.
+     */
+    public void invalidate(K key) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Vacía la caché por completo.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Proporción de lecturas servidas desde la caché.
+     *
+     * @return valor entre 0 y 1 (0 si aún no ha habido lecturas).
+     */
+    public double getHitRate() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * Valor almacenado junto con su instante de caducidad.
+     */
+    private record CacheEntry<V>(V value, long expiresAt) {
+    }
+}
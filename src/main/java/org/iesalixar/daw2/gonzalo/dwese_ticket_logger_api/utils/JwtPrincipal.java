@@ -0,0 +1,36 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.utils;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+import java.util.List;
+
+/**
+ * Principal ligero construido directamente a partir de un token JWT verificado.
+ * Se usa en el modo de autenticación "solo claims", en el que no se consulta la base
+ * de datos para cargar el usuario en cada petición.
+ *
+ * @param username nombre de usuario (claim "sub").
+ * @param id       identificador del usuario (claim "id").
+ * @param roles    roles del usuario (claim "roles").
+ */
+public record JwtPrincipal(String username, Long id, List<String> roles) implements AuthenticatedPrincipal {
+
+    public JwtPrincipal {
+        roles = roles == null ? List.of() : List.copyOf(roles);
+    }
+
+    /**
+     * Crea el principal a partir de los datos verificados del token.
+     *
+     * @param verifiedJwt token ya verificado.
+     * @return el principal correspondiente.
+     */
+    public static JwtPrincipal from(VerifiedJwt verifiedJwt) {
+        return new JwtPrincipal(verifiedJwt.username(), verifiedJwt.id(), verifiedJwt.roles());
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
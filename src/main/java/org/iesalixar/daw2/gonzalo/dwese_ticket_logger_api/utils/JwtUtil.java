@@ -1,24 +1,54 @@
 package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.utils;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.CacheRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cglib.core.internal.Function;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 @Component
 public class JwtUtil {
 
+    private static final Logger logger = LoggerFactory.getLogger(JwtUtil.class);
+
     @Autowired
     private KeyPair jwtKeyPair;
 
+    @Autowired
+    private CacheRegistry cacheRegistry;
+
+    // Parser reutilizable: es inmutable y seguro entre hilos, así que se construye una sola vez
+    private JwtParser jwtParser;
+
+    // Tamaño máximo (en caracteres) de un token para guardarlo en la caché de tokens verificados
+    private static final int MAX_CACHEABLE_TOKEN_LENGTH = 8192;
+
+    // Número máximo de tokens verificados que se mantienen en memoria
+    @Value("${jwt.verified-cache.max-size:10000}")
+    private int verifiedCacheMaxSize;
+
+    // Caché de tokens ya verificados, indexada por el SHA-256 del token y válida hasta su claim "exp"
+    private BoundedCache<String, VerifiedJwt> verifiedTokenCache;
+
     private static final long JWT_EXPIRATION = 36000000; // 1 hioora
 
     /**
@@ -42,6 +72,91 @@ public class JwtUtil {
         return Keys.hmacShaKeyFor(secretKeyFromProperties.getBytes());
     }
 
+    /**
+     * Construye el parser de JJWT con la clave pública una vez inyectado el par de claves.
+     */
+    @PostConstruct
+    public void init() {
+        jwtParser = Jwts.parser()
+                .verifyWith(jwtKeyPair.getPublic()) // Configura la clave para verificar la firma
+                .build();
+        verifiedTokenCache = cacheRegistry.register(new BoundedCache<>("verified-tokens", verifiedCacheMaxSize,
+                Duration.ofMillis(JWT_EXPIRATION)));
+    }
+
+    /**
+     * Verifica la firma y la caducidad del token una única vez y devuelve sus datos.
+     * Es el punto de entrada recomendado para autenticar peticiones, ya que evita parsear
+     * el token varias veces (cada parseo implica una verificación RSA).
+     * <p>
+     * Los tokens verificados se guardan en una caché indexada por su SHA-256 hasta que expiran,
+     * de modo que las peticiones repetidas con el mismo token no vuelven a comprobar la firma.
+     * Solo se guardan tokens con firma correcta, así que los tokens falsificados no ocupan memoria.
+     *
+     * @param token el token JWT (sin el prefijo "Bearer ").
+     * @return los datos verificados del token, o vacío si el token no es válido o ha expirado.
+     */
+    public Optional<VerifiedJwt> verify(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        boolean cacheable = token.length() <= MAX_CACHEABLE_TOKEN_LENGTH;
+        String digest = cacheable ? sha256(token) : null;
+        if (cacheable) {
+            VerifiedJwt cached = verifiedTokenCache.get(digest);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+        }
+        try {
+            // El parser rechaza por sí mismo los tokens con firma incorrecta o expirados
+            VerifiedJwt verified = VerifiedJwt.fromClaims(extractAllClaims(token));
+            if (cacheable && verified.expiration() != null) {
+                verifiedTokenCache.put(digest, verified, verified.expiration().toEpochMilli());
+            }
+            return Optional.of(verified);
+        } catch (JwtException | IllegalArgumentException e) {
+            logger.debug("Token JWT no válido: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Devuelve la caché de tokens verificados, para consultar sus estadísticas (aciertos, fallos, expulsiones).
+     *
+     * @return la caché de tokens verificados.
+     */
+    public BoundedCache<String, VerifiedJwt> getVerifiedTokenCache() {
+        return verifiedTokenCache;
+    }
+
+    /**
+     * Devuelve el tiempo de vida de los tokens emitidos.
+     *
+     * @return el tiempo de vida en milisegundos.
+     */
+    public long getExpirationMillis() {
+        return JWT_EXPIRATION;
+    }
+
+    /**
+     * Calcula el resumen SHA-256 del token codificado en Base64.
+     * Se usa como clave de la caché para no guardar el token completo en memoria.
+     *
+     * @param token el token JWT.
+     * @return el resumen del token.
+     */
+    private String sha256(String token) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = messageDigest.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            // Todas las JVM están obligadas a soportar SHA-256
+            throw new IllegalStateException("SHA-256 no está disponible.", e);
+        }
+    }
+
 
     /**
      * Método genérico para extraer cualquier claim del token JWT.
@@ -66,9 +181,7 @@ public class JwtUtil {
      * @return los claims contenidos en el token.
      */
     public Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(jwtKeyPair.getPublic()) // Configura la clave para verificar la firma
-                .build()
+        return jwtParser
                 .parseSignedClaims(token) // Verifica el token y lo parsea
                 .getPayload(); // Devuelve el cuerpo del JWT (claims)
     }
@@ -117,11 +230,7 @@ public class JwtUtil {
      */
 
     public boolean validateToken (String token, String username) {
-        Claims claims = Jwts.parser()
-                .verifyWith(jwtKeyPair.getPublic())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        Claims claims = extractAllClaims(token);
         return username.equals(claims.getSubject()) && !isTokenExpired(claims);
 
     }
@@ -0,0 +1,103 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+
+/**
+ * Buffer circular de tamaño fijo con los últimos elementos añadidos.
+ * No usa bloqueos: cada escritura reserva un número de secuencia y ocupa la posición
+ * correspondiente, sobrescribiendo el elemento más antiguo cuando el buffer está lleno.
+ * <p>
+ * Como la reserva de la secuencia y la escritura de la posición no son atómicas en conjunto,
+ * una lectura puede encontrar una secuencia reservada pero aún sin escribir. Las lecturas solo
+ * devuelven secuencias consecutivas y se detienen en la primera que falta, de modo que nunca
+ * se devuelve un elemento posterior a uno que todavía no es visible.
+ *
+ * @param <T> tipo de los elementos almacenados.
+ */
+public class RingBuffer<T> {
+
+    private final int capacity;
+    private final AtomicReferenceArray<Slot<T>> slots;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Crea un buffer circular.
+     *
+     * @param capacity número de elementos que conserva.
+     */
+    public RingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("La capacidad del buffer debe ser mayor que 0.");
+        }
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Añade un elemento, descartando el más antiguo si el buffer está lleno.
+     *
+     * @param item elemento a añadir.
+     */
+    public void add(T item) {
+        long seq = sequence.getAndIncrement();
+        slots.set((int) (seq % capacity), new Slot<>(seq, item));
+    }
+
+    /**
+     * Obtiene una copia de los elementos actuales, del más antiguo al más reciente,
+     * con secuencias consecutivas y sin huecos.
+     *
+     * @return lista con los elementos del buffer.
+     */
+    public List<T> snapshot() {
+        long end = sequence.get();
+        long start = Math.max(0, end - capacity);
+        List<T> current = new ArrayList<>(capacity);
+        for (long seq = start; seq < end; seq++) {
+            Slot<T> slot = slots.get((int) (seq % capacity));
+            if (slot == null || slot.seq() < seq) {
+                // Secuencia reservada pero aún sin escribir: lo posterior no se devuelve
+                break;
+            }
+            if (slot.seq() > seq) {
+                // Sobrescrita durante la lectura por un elemento más reciente: lo leído hasta
+                // ahora es anterior al hueco, así que se descarta para no devolver huecos
+                current.clear();
+                continue;
+            }
+            current.add(slot.item());
+        }
+        return current;
+    }
+
+    /**
+     * Obtiene los elementos añadidos después del último que cumple la condición.
+     *
+     * @param marker condición que identifica el último elemento conocido.
+     * @return los elementos posteriores, o vacío si ningún elemento del buffer cumple la condición.
+     */
+    public Optional<List<T>> itemsAfter(Predicate<? super T> marker) {
+        List<T> items = snapshot();
+        for (int i = items.size() - 1; i >= 0; i--) {
+            if (marker.test(items.get(i))) {
+                return Optional.of(items.subList(i + 1, items.size()));
+            }
+        }
+        return Optional.empty();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Elemento junto con su número de secuencia.
+     */
+    private record Slot<T>(long seq, T item) {
+    }
+}
@@ -0,0 +1,42 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.utils;
+
+import io.jsonwebtoken.Claims;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Datos inmutables de un token JWT cuya firma y caducidad ya se han verificado.
+ * Se obtiene una única vez por token con {@link JwtUtil#verify(String)} y evita
+ * volver a parsear el token para leer cada claim.
+ *
+ * @param username   nombre de usuario (claim "sub").
+ * @param id         identificador del usuario (claim "id").
+ * @param roles      roles del usuario (claim "roles").
+ * @param issuedAt   fecha de emisión del token (claim "iat").
+ * @param expiration fecha de expiración del token (claim "exp").
+ */
+public record VerifiedJwt(String username, Long id, List<String> roles, Instant issuedAt, Instant expiration) {
+
+    public VerifiedJwt {
+        roles = roles == null ? List.of() : List.copyOf(roles);
+    }
+
+    /**
+     * Construye el objeto a partir de los claims ya verificados por el parser de JJWT.
+     *
+     * @param claims claims del token.
+     * @return los datos verificados del token.
+     */
+    static VerifiedJwt fromClaims(Claims claims) {
+        List<?> rawRoles = claims.get("roles", List.class);
+        List<String> roles = rawRoles == null ? List.of() : rawRoles.stream().map(String::valueOf).toList();
+        Number id = claims.get("id", Number.class);
+        return new VerifiedJwt(
+                claims.getSubject(),
+                id == null ? null : id.longValue(),
+                roles,
+                claims.getIssuedAt() == null ? null : claims.getIssuedAt().toInstant(),
+                claims.getExpiration() == null ? null : claims.getExpiration().toInstant());
+    }
+}
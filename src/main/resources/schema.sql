@@ -27,6 +27,12 @@ CREATE TABLE IF NOT EXISTS products (
     price DECIMAL(10, 2) NOT NULL
     );
 
+-- Índice para las búsquedas por prefijo del nombre (LIKE 'texto%') y su ordenación
+CREATE INDEX IF NOT EXISTS idx_products_name ON products (name);
+
+-- Índice de texto completo para buscar palabras en cualquier posición del nombre
+CREATE FULLTEXT INDEX IF NOT EXISTS ft_products_name ON products (name);
+
 -- Crear la tabla 'product_ticket'
 CREATE TABLE IF NOT EXISTS product_ticket (
      product_id INT NOT NULL,
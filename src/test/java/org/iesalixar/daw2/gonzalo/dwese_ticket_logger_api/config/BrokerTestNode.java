@@ -0,0 +1,219 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.config;
+
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.WebSocketMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Instancia de la API reducida a la configuración de WebSockets ({@link WebSocketConfig}), con sesiones
+ * STOMP simuladas: los frames de los clientes se envían al canal de entrada y se recogen los mensajes
+ * que el broker entrega en el canal de salida, sin abrir conexiones WebSocket reales.
+ */
+class BrokerTestNode implements AutoCloseable {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(20);
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(10);
+
+    private final AnnotationConfigWebApplicationContext context = new AnnotationConfigWebApplicationContext();
+
+    // Frames entregados por el broker a las sesiones de este nodo
+    private final List<Message<?>> delivered = new CopyOnWriteArrayList<>();
+
+    /**
+     * Arranca el nodo con las propiedades indicadas (por ejemplo, las del broker externo).
+     *
+     * @param properties propiedades de configuración del nodo.
+     */
+    BrokerTestNode(Map<String, Object> properties) {
+        this(properties, null);
+    }
+
+    /**
+     * Arranca el nodo entregando los frames MESSAGE al listener indicado en lugar de guardarlos,
+     * para medir volúmenes grandes de mensajes sin acumularlos en memoria.
+     *
+     * @param properties      propiedades de configuración del nodo.
+     * @param messageListener receptor de los frames MESSAGE, o null para guardarlos.
+     */
+    BrokerTestNode(Map<String, Object> properties, Consumer<Message<?>> messageListener) {
+        context.setServletContext(new MockServletContext());
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("broker-test", properties));
+        context.register(NodeConfig.class);
+        context.refresh();
+        context.getBean("clientOutboundChannel", SubscribableChannel.class).subscribe(message -> {
+            if (messageListener != null
+                    && SimpMessageType.MESSAGE.equals(SimpMessageHeaderAccessor.getMessageType(message.getHeaders()))) {
+                messageListener.accept(message);
+            } else {
+                delivered.add(message);
+            }
+        });
+        await().atMost(TIMEOUT).until(() -> brokerHandler().isBrokerAvailable());
+    }
+
+    /**
+     * Abre una sesión STOMP y espera a que el broker confirme la conexión
+     * (CONNECT_ACK con el broker simple, frame CONNECTED con el broker externo).
+     *
+     * @param sessionId identificador de la sesión.
+     */
+    void connect(String sessionId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setAcceptVersion("1.2");
+        accessor.setHeartbeat(0, 0);
+        send(sessionId, accessor);
+        await().atMost(TIMEOUT).pollInterval(POLL_INTERVAL).until(() -> received(sessionId, SimpMessageType.CONNECT_ACK) > 0
+                || receivedFrame(sessionId, StompCommand.CONNECTED, null));
+    }
+
+    /**
+     * Suscribe la sesión al destino y espera a que la suscripción esté registrada en el broker
+     * (el broker externo lo confirma con un frame RECEIPT).
+     *
+     * @param sessionId   identificador de la sesión.
+     * @param destination destino al que se suscribe.
+     */
+    void subscribe(String sessionId, String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSubscriptionId("sub-" + sessionId);
+        accessor.setDestination(destination);
+        accessor.setReceipt("receipt-" + sessionId);
+        send(sessionId, accessor);
+        await().atMost(TIMEOUT).pollInterval(POLL_INTERVAL).until(() -> isSubscribed(sessionId, destination));
+    }
+
+    /**
+     * Publica un mensaje en el broker como lo hace NotificationBroadcaster.
+     *
+     * @param destination destino del mensaje.
+     * @param payload     contenido del mensaje.
+     */
+    void publish(String destination, String payload) {
+        context.getBean("brokerMessagingTemplate", SimpMessagingTemplate.class).convertAndSend(destination, payload);
+    }
+
+    /**
+     * Número de mensajes entregados a la sesión.
+     *
+     * @param sessionId identificador de la sesión.
+     */
+    long messagesFor(String sessionId) {
+        return received(sessionId, SimpMessageType.MESSAGE);
+    }
+
+    /**
+     * Contenido de los mensajes entregados a la sesión, en el orden en que llegaron.
+     *
+     * @param sessionId identificador de la sesión.
+     */
+    List<String> payloadsFor(String sessionId) {
+        return delivered.stream()
+                .filter(message -> sessionId.equals(SimpMessageHeaderAccessor.getSessionId(message.getHeaders())))
+                .filter(message -> SimpMessageType.MESSAGE.equals(SimpMessageHeaderAccessor.getMessageType(message.getHeaders())))
+                .map(BrokerTestNode::payloadOf)
+                .toList();
+    }
+
+    /**
+     * Contenido de un mensaje entregado por el broker.
+     *
+     * @param message mensaje del canal de salida.
+     */
+    static String payloadOf(Message<?> message) {
+        return message.getPayload() instanceof byte[] bytes
+                ? new String(bytes, StandardCharsets.UTF_8)
+                : message.getPayload().toString();
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+
+    private void send(String sessionId, StompHeaderAccessor accessor) {
+        accessor.setSessionId(sessionId);
+        accessor.setSessionAttributes(new HashMap<>());
+        accessor.setLeaveMutable(true);
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        context.getBean("clientInboundChannel", MessageChannel.class).send(message);
+    }
+
+    private long received(String sessionId, SimpMessageType type) {
+        return delivered.stream()
+                .filter(message -> sessionId.equals(SimpMessageHeaderAccessor.getSessionId(message.getHeaders())))
+                .filter(message -> type.equals(SimpMessageHeaderAccessor.getMessageType(message.getHeaders())))
+                .count();
+    }
+
+    /**
+     * Con el broker simple la suscripción queda en su registro; con el broker externo se espera el RECEIPT.
+     */
+    private boolean isSubscribed(String sessionId, String destination) {
+        if (brokerHandler() instanceof SimpleBrokerMessageHandler simpleBroker) {
+            SimpMessageHeaderAccessor probe = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            probe.setDestination(destination);
+            Message<byte[]> message = MessageBuilder.createMessage(new byte[0], probe.getMessageHeaders());
+            return simpleBroker.getSubscriptionRegistry().findSubscriptions(message).containsKey(sessionId);
+        }
+        return receivedFrame(sessionId, StompCommand.RECEIPT, "receipt-" + sessionId);
+    }
+
+    /**
+     * Indica si la sesión ha recibido un frame del broker externo con el comando (y, si se indica, el recibo) dado.
+     */
+    private boolean receivedFrame(String sessionId, StompCommand command, String receiptId) {
+        return delivered.stream()
+                .filter(message -> sessionId.equals(SimpMessageHeaderAccessor.getSessionId(message.getHeaders())))
+                .map(StompHeaderAccessor::wrap)
+                .anyMatch(accessor -> command.equals(accessor.getCommand())
+                        && (receiptId == null || receiptId.equals(accessor.getReceiptId())));
+    }
+
+    private AbstractBrokerMessageHandler brokerHandler() {
+        String name = context.getEnvironment().getProperty("websocket.broker.relay.enabled", Boolean.class, false)
+                ? "stompBrokerRelayMessageHandler"
+                : "simpleBrokerMessageHandler";
+        return context.getBean(name, AbstractBrokerMessageHandler.class);
+    }
+
+    /**
+     * Configuración del nodo: la de WebSockets de la aplicación, sin la verificación de tokens JWT
+     * (las sesiones simuladas no envían token).
+     */
+    @Configuration
+    @Import({WebSocketConfig.class, WebSocketMetrics.class})
+    static class NodeConfig {
+
+        @Bean
+        JwtAuthenticationResolver jwtAuthenticationResolver() {
+            return mock(JwtAuthenticationResolver.class);
+        }
+    }
+}
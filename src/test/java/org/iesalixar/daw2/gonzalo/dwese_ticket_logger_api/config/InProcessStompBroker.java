@@ -0,0 +1,273 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.config;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompDecoder;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Broker STOMP 1.2 mínimo que se ejecuta en el propio proceso, para que {@code enableStompBrokerRelay}
+ * pueda conectarse a él sin Docker. Escucha en un puerto TCP local libre y atiende cada conexión en un
+ * hilo virtual.
+ * <p>
+ * Implementa lo que usa la aplicación: CONNECT/STOMP, SUBSCRIBE, UNSUBSCRIBE, SEND, DISCONNECT y
+ * RECEIPT. Cada SEND se entrega una vez a todas las suscripciones con el mismo destino exacto (la
+ * semántica de los destinos {@code /topic}); no hay colas con reparto entre consumidores, comodines,
+ * transacciones ni acks, y no se envían heartbeats (el CONNECTED responde {@code heart-beat:0,0}).
+ */
+class InProcessStompBroker implements AutoCloseable {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final ServerSocket serverSocket;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final StompEncoder encoder = new StompEncoder();
+
+    // Destino -> suscripciones a ese destino
+    private final Map<String, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong messageIds = new AtomicLong();
+
+    private final AtomicLong framesSent = new AtomicLong();
+
+    /**
+     * Abre el puerto y empieza a aceptar conexiones.
+     */
+    InProcessStompBroker() throws IOException {
+        serverSocket = new ServerSocket(0, 512, InetAddress.getLoopbackAddress());
+        executor.execute(this::acceptConnections);
+    }
+
+    String getHost() {
+        return serverSocket.getInetAddress().getHostAddress();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Número de conexiones abiertas (una de sistema por nodo y una por cada sesión de cliente).
+     */
+    int connectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Número de frames MESSAGE entregados a los suscriptores desde el arranque.
+     */
+    long messagesDelivered() {
+        return framesSent.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.forEach(Connection::close);
+        executor.shutdownNow();
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Connection connection = new Connection(socket);
+                connections.add(connection);
+                executor.execute(connection::read);
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    throw new IllegalStateException("Error al aceptar una conexión STOMP", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Entrega el contenido de un SEND a todas las suscripciones de su destino.
+     */
+    private void deliver(StompHeaderAccessor send, byte[] payload) {
+        Set<Subscription> targets = subscriptions.get(send.getDestination());
+        if (targets == null) {
+            return;
+        }
+        for (Subscription subscription : targets) {
+            StompHeaderAccessor message = StompHeaderAccessor.create(StompCommand.MESSAGE);
+            message.setDestination(send.getDestination());
+            message.setSubscriptionId(subscription.id());
+            message.setNativeHeader("message-id", Long.toString(messageIds.incrementAndGet()));
+            if (send.getContentType() != null) {
+                message.setContentType(send.getContentType());
+            }
+            if (subscription.connection().write(message, payload)) {
+                framesSent.incrementAndGet();
+            }
+        }
+    }
+
+    private record Subscription(Connection connection, String id, String destination) {
+    }
+
+    /**
+     * Conexión TCP de un cliente STOMP (la sesión de sistema de un nodo o una sesión de cliente).
+     */
+    private class Connection {
+
+        private final Socket socket;
+
+        private final OutputStream out;
+
+        private final StompDecoder decoder = new StompDecoder();
+
+        // Identificador de la suscripción -> suscripción, para atender los UNSUBSCRIBE
+        private final Map<String, Subscription> ownSubscriptions = new ConcurrentHashMap<>();
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = socket.getOutputStream();
+        }
+
+        /**
+         * Lee y atiende los frames hasta que el cliente cierra la conexión.
+         */
+        void read() {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            byte[] chunk = new byte[READ_BUFFER_SIZE];
+            try (InputStream in = socket.getInputStream()) {
+                int read;
+                while ((read = in.read(chunk)) != -1) {
+                    if (buffer.remaining() < read) {
+                        ByteBuffer larger = ByteBuffer.allocate((buffer.position() + read) * 2);
+                        buffer.flip();
+                        larger.put(buffer);
+                        buffer = larger;
+                    }
+                    buffer.put(chunk, 0, read);
+                    buffer.flip();
+                    // Los frames incompletos se quedan en el buffer hasta la siguiente lectura
+                    List<Message<byte[]>> frames = decoder.decode(buffer);
+                    buffer.compact();
+                    for (Message<byte[]> frame : frames) {
+                        if (!handle(StompHeaderAccessor.wrap(frame), frame.getPayload())) {
+                            return;
+                        }
+                    }
+                }
+            } catch (SocketException e) {
+                // Conexión cerrada por el cliente o al parar el broker
+            } catch (IOException e) {
+                throw new IllegalStateException("Error al leer de una conexión STOMP", e);
+            } finally {
+                close();
+            }
+        }
+
+        /**
+         * Atiende un frame; devuelve false si la conexión debe cerrarse.
+         */
+        private boolean handle(StompHeaderAccessor frame, byte[] payload) {
+            if (frame.isHeartbeat()) {
+                return true;
+            }
+            switch (frame.getCommand()) {
+                case CONNECT, STOMP -> {
+                    StompHeaderAccessor connected = StompHeaderAccessor.create(StompCommand.CONNECTED);
+                    connected.setNativeHeader("version", "1.2");
+                    connected.setHeartbeat(0, 0);
+                    write(connected, new byte[0]);
+                }
+                case SUBSCRIBE -> {
+                    Subscription subscription = new Subscription(this, frame.getSubscriptionId(), frame.getDestination());
+                    ownSubscriptions.put(subscription.id(), subscription);
+                    subscriptions.computeIfAbsent(subscription.destination(), destination -> ConcurrentHashMap.newKeySet())
+                            .add(subscription);
+                }
+                case UNSUBSCRIBE -> unsubscribe(ownSubscriptions.remove(frame.getSubscriptionId()));
+                case SEND -> deliver(frame, payload);
+                case DISCONNECT -> {
+                    sendReceipt(frame);
+                    return false;
+                }
+                default -> {
+                    StompHeaderAccessor error = StompHeaderAccessor.create(StompCommand.ERROR);
+                    error.setMessage("Frame no soportado: " + frame.getCommand());
+                    write(error, new byte[0]);
+                    return false;
+                }
+            }
+            sendReceipt(frame);
+            return true;
+        }
+
+        private void sendReceipt(StompHeaderAccessor frame) {
+            if (frame.getReceipt() != null) {
+                StompHeaderAccessor receipt = StompHeaderAccessor.create(StompCommand.RECEIPT);
+                receipt.setReceiptId(frame.getReceipt());
+                write(receipt, new byte[0]);
+            }
+        }
+
+        /**
+         * Escribe un frame; los frames de distintos hilos no se mezclan en el socket.
+         *
+         * @return false si la conexión ya está cerrada.
+         */
+        boolean write(StompHeaderAccessor accessor, byte[] payload) {
+            byte[] frame = encoder.encode(MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+            synchronized (out) {
+                try {
+                    out.write(frame);
+                    out.flush();
+                    return true;
+                } catch (IOException e) {
+                    close();
+                    return false;
+                }
+            }
+        }
+
+        void close() {
+            if (connections.remove(this)) {
+                new ArrayList<>(ownSubscriptions.values()).forEach(this::unsubscribe);
+                ownSubscriptions.clear();
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Ya no queda nada que liberar
+                }
+            }
+        }
+
+        private void unsubscribe(Subscription subscription) {
+            if (subscription != null) {
+                Set<Subscription> targets = subscriptions.get(subscription.destination());
+                if (targets != null) {
+                    targets.remove(subscription);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.config;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.Notification;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.mongodb.MongoDBContainer;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Comprueba con el plan de ejecución de MongoDB (explain) que las consultas de notificaciones
+ * usan los índices creados por {@link NotificationIndexInitializer}: sin recorrer la colección
+ * completa (COLLSCAN) ni ordenar en memoria (SORT).
+ * <p>
+ * Las consultas reproducen las que construye NotificationService. Requiere Docker.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class NotificationIndexInitializerTest {
+
+    private static final String USERNAME = "ana";
+
+    private static final Document NEWEST_FIRST = new Document("createdAt", -1).append("_id", -1);
+
+    @Container
+    private static final MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+    private static ReactiveMongoTemplate template;
+
+    @BeforeAll
+    static void createIndexesAndData() {
+        client = MongoClients.create(mongo.getConnectionString());
+        template = new ReactiveMongoTemplate(client, "notifications_test");
+
+        List<Notification> notifications = new ArrayList<>();
+        Instant now = Instant.now();
+        for (int i = 0; i < 500; i++) {
+            Notification notification = new Notification();
+            notification.setSubject("Asunto " + i);
+            notification.setMessage("Mensaje " + i);
+            notification.setCreatedAt(now.minusSeconds(i));
+            notification.setRecipient(i % 3 == 0 ? null : i % 5 == 0 ? USERNAME : "usuario" + (i % 7));
+            notification.setReadBy(i % 2 == 0 ? List.of(USERNAME, "otro") : List.of());
+            notifications.add(notification);
+        }
+        template.insertAll(notifications).then().block(Duration.ofSeconds(30));
+
+        NotificationIndexInitializer initializer = new NotificationIndexInitializer();
+        ReflectionTestUtils.setField(initializer, "reactiveMongoTemplate", template);
+        ReflectionTestUtils.setField(initializer, "retentionDays", 0L);
+        initializer.createIndexes();
+
+        // Los índices se crean de forma asíncrona
+        await().atMost(Duration.ofSeconds(30)).until(() -> indexNames()
+                .containsAll(List.of("readBy_createdAt_id", "createdAt_id", "recipient_createdAt_id")));
+    }
+
+    @AfterAll
+    static void closeClient() {
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @Test
+    void anonymousPageUsesRecipientIndexWithoutSort() {
+        Document filter = new Document("recipient", null);
+
+        List<String> plan = winningPlan(filter, NEWEST_FIRST);
+
+        assertThat(plan).contains("IXSCAN:recipient_createdAt_id").doesNotContain("COLLSCAN", "SORT");
+    }
+
+    @Test
+    void userPageUsesAnIndexWithoutSort() {
+        Document filter = visibleToUser();
+
+        List<String> plan = winningPlan(filter, NEWEST_FIRST);
+
+        assertThat(plan).anyMatch(stage -> stage.equals("IXSCAN:recipient_createdAt_id")
+                        || stage.equals("IXSCAN:createdAt_id"))
+                .doesNotContain("COLLSCAN", "SORT");
+    }
+
+    @Test
+    void readFilterUsesAnIndexWithoutSort() {
+        Document filter = new Document("$and", List.of(visibleToUser(), new Document("readBy", USERNAME)));
+
+        List<String> plan = winningPlan(filter, NEWEST_FIRST);
+
+        assertThat(plan).anyMatch(stage -> stage.equals("IXSCAN:readBy_createdAt_id")
+                        || stage.equals("IXSCAN:recipient_createdAt_id"))
+                .doesNotContain("COLLSCAN", "SORT");
+    }
+
+    @Test
+    void cursorPageUsesAnIndexWithoutSort() {
+        Instant createdAt = Instant.now().minusSeconds(100);
+        Document after = new Document("$or", List.of(
+                new Document("createdAt", new Document("$lt", createdAt)),
+                new Document("$and", List.of(
+                        new Document("createdAt", createdAt),
+                        new Document("_id", new Document("$lt", new ObjectId()))))));
+        Document filter = new Document("$and", List.of(visibleToUser(), after));
+
+        List<String> plan = winningPlan(filter, NEWEST_FIRST);
+
+        assertThat(plan).anyMatch(stage -> stage.startsWith("IXSCAN:")).doesNotContain("COLLSCAN", "SORT");
+    }
+
+    @Test
+    void markAllAsReadUsesAnIndex() {
+        Document filter = new Document("$and", List.of(
+                visibleToUser(),
+                new Document("readBy", new Document("$ne", USERNAME)),
+                new Document("createdAt", new Document("$lte", Instant.now()))));
+
+        List<String> plan = winningPlan(filter, null);
+
+        assertThat(plan).anyMatch(stage -> stage.startsWith("IXSCAN:")).doesNotContain("COLLSCAN");
+    }
+
+    /**
+     * Notificaciones visibles para el usuario: las generales y las dirigidas a él.
+     */
+    private static Document visibleToUser() {
+        return new Document("recipient", new Document("$in", Arrays.asList(null, USERNAME)));
+    }
+
+    private static List<String> indexNames() {
+        return template.indexOps(Notification.class).getIndexInfo()
+                .map(IndexInfo::getName)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+    }
+
+    /**
+     * Obtiene las etapas del plan ganador de la consulta, con el nombre del índice en las de tipo IXSCAN.
+     */
+    private static List<String> winningPlan(Document filter, Document sort) {
+        Document find = new Document("find", template.getCollectionName(Notification.class)).append("filter", filter);
+        if (sort != null) {
+            find.append("sort", sort);
+        }
+        Document explain = template.executeCommand(new Document("explain", find).append("verbosity", "queryPlanner"))
+                .block(Duration.ofSeconds(10));
+        Document winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+        List<String> stages = new ArrayList<>();
+        collectStages(winningPlan, stages);
+        return stages;
+    }
+
+    /**
+     * Recorre el plan (y sus etapas anidadas) guardando cada etapa. En los planes del motor SBE
+     * las etapas están bajo "queryPlan"; "slotBasedPlan" describe la ejecución y se ignora.
+     */
+    private static void collectStages(Object node, List<String> stages) {
+        if (node instanceof Document document) {
+            Object stage = document.get("stage");
+            if (stage != null) {
+                Object indexName = document.get("indexName");
+                stages.add(indexName != null ? stage + ":" + indexName : stage.toString());
+            }
+            for (Map.Entry<String, Object> entry : document.entrySet()) {
+                if (!"slotBasedPlan".equals(entry.getKey())) {
+                    collectStages(entry.getValue(), stages);
+                }
+            }
+        } else if (node instanceof List<?> list) {
+            list.forEach(item -> collectStages(item, stages));
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.config;
+
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.NotificationBroadcaster;
+import org.springframework.messaging.Message;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Benchmark de la difusión de notificaciones entre instancias a través del broker STOMP externo:
+ * N nodos con M sesiones suscritas cada uno, a los que se publican K mensajes repartidos entre
+ * los nodos. Cada mensaje debe llegar a las N × M sesiones.
+ * <p>
+ * Mide el rendimiento (mensajes publicados y entregas por segundo, desde la primera publicación
+ * hasta la última entrega) y la latencia de cada entrega (desde la publicación en el nodo de origen
+ * hasta que el mensaje sale por el canal de salida de la sesión), con sus percentiles.
+ * Antes de medir se ejecuta una ronda de calentamiento.
+ * <p>
+ * Por defecto usa {@link InProcessStompBroker}; con {@code -Dbroker.host} y {@code -Dbroker.port}
+ * se mide contra un broker real (por ejemplo, el RabbitMQ de docker-compose.yml). El broker en proceso
+ * sirve para comparar cambios en la aplicación; para cifras absolutas conviene medir contra el real:
+ * <pre>
+ * mvn test-compile
+ * java -Dnodes=3 -Dsessions=100 -Dmessages=1000 -Drate=0 \
+ *     -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *     org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.config.WebSocketFanOutBenchmark
+ * </pre>
+ * {@code rate} limita los mensajes publicados por segundo (0 publica tan rápido como sea posible,
+ * de modo que la latencia incluye el tiempo en cola).
+ */
+public class WebSocketFanOutBenchmark {
+
+    private static final String TOPIC = NotificationBroadcaster.NOTIFICATIONS_TOPIC;
+
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(120);
+
+    // Ronda en curso; las entregas de rondas anteriores se ignoran
+    private static volatile Round round;
+
+    public static void main(String[] args) throws Exception {
+        int nodes = Integer.getInteger("nodes", 3);
+        int sessions = Integer.getInteger("sessions", 100);
+        int messages = Integer.getInteger("messages", 1000);
+        int rate = Integer.getInteger("rate", 0);
+        String host = System.getProperty("broker.host");
+
+        InProcessStompBroker standIn = host == null ? new InProcessStompBroker() : null;
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("websocket.broker.relay.enabled", "true");
+        properties.put("websocket.broker.relay.host", host != null ? host : standIn.getHost());
+        properties.put("websocket.broker.relay.port", host != null
+                ? System.getProperty("broker.port", "61613") : String.valueOf(standIn.getPort()));
+
+        List<BrokerTestNode> cluster = new ArrayList<>();
+        try {
+            for (int node = 0; node < nodes; node++) {
+                BrokerTestNode brokerNode = new BrokerTestNode(properties, WebSocketFanOutBenchmark::onDelivery);
+                cluster.add(brokerNode);
+                for (int session = 0; session < sessions; session++) {
+                    String sessionId = node + "-" + session;
+                    brokerNode.connect(sessionId);
+                    brokerNode.subscribe(sessionId, TOPIC);
+                }
+            }
+            System.out.printf("Broker: %s, %d nodos x %d sesiones, %d mensajes por ronda, rate=%s%n",
+                    host != null ? host : "en proceso", nodes, sessions, messages, rate > 0 ? rate + "/s" : "sin límite");
+
+            run("Calentamiento", cluster, sessions, Math.max(1, messages / 10), rate);
+            run("Medición", cluster, sessions, messages, rate);
+        } finally {
+            cluster.forEach(BrokerTestNode::close);
+            if (standIn != null) {
+                standIn.close();
+            }
+        }
+    }
+
+    /**
+     * Publica los mensajes de una ronda repartidos entre los nodos y espera a todas las entregas.
+     */
+    private static void run(String name, List<BrokerTestNode> cluster, int sessions, int messages, int rate) {
+        Round current = new Round(round == null ? 0 : round.id + 1, cluster.size() * sessions * messages);
+        round = current;
+        long intervalNanos = rate > 0 ? TimeUnit.SECONDS.toNanos(1) / rate : 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            if (intervalNanos > 0) {
+                long due = start + i * intervalNanos;
+                while (System.nanoTime() < due) {
+                    LockSupport.parkNanos(due - System.nanoTime());
+                }
+            }
+            cluster.get(i % cluster.size()).publish(TOPIC, current.id + ":" + System.nanoTime());
+        }
+        long published = System.nanoTime();
+
+        while (current.received.get() < current.expected && System.nanoTime() - start < TIMEOUT_NANOS) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        current.report(name, messages, published - start, current.lastDelivery - start);
+    }
+
+    /**
+     * Registra la latencia de un mensaje entregado a una sesión.
+     */
+    private static void onDelivery(Message<?> message) {
+        long now = System.nanoTime();
+        Round current = round;
+        String payload = BrokerTestNode.payloadOf(message);
+        int separator = payload.indexOf(':');
+        if (current == null || separator < 0
+                || Integer.parseInt(payload.substring(0, separator)) != current.id) {
+            return;
+        }
+        int index = current.next.getAndIncrement();
+        if (index < current.latencies.length) {
+            current.latencies[index] = now - Long.parseLong(payload.substring(separator + 1));
+            current.lastDelivery = now;
+            // Se cuenta después de escribir la latencia, para que el informe la vea
+            current.received.incrementAndGet();
+        }
+    }
+
+    private static final class Round {
+
+        private final int id;
+        private final int expected;
+        private final long[] latencies;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger received = new AtomicInteger();
+        private volatile long lastDelivery;
+
+        Round(int id, int expected) {
+            this.id = id;
+            this.expected = expected;
+            this.latencies = new long[expected];
+        }
+
+        void report(String name, int messages, long publishNanos, long totalNanos) {
+            int count = received.get();
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            double seconds = Math.max(totalNanos, 1) / 1e9;
+            System.out.printf("%s: %d/%d entregas en %.3f s (publicación %.3f s)%n",
+                    name, count, expected, seconds, publishNanos / 1e9);
+            System.out.printf("  rendimiento: %.0f mensajes/s publicados, %.0f entregas/s%n",
+                    messages / seconds, count / seconds);
+            if (count > 0) {
+                System.out.printf("  latencia (ms): p50=%.3f p90=%.3f p99=%.3f p99.9=%.3f max=%.3f%n",
+                        percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                        percentile(sorted, 0.999), sorted[count - 1] / 1e6);
+            }
+            if (count < expected) {
+                System.out.printf("  ¡Faltan %d entregas (tiempo agotado o mensajes descartados)!%n", expected - count);
+            }
+        }
+
+        private static double percentile(long[] sorted, double percentile) {
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.config;
+
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.NotificationBroadcaster;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Comprueba la difusión entre varias instancias de la API a través del broker STOMP externo:
+ * un mensaje publicado por un nodo llega una sola vez a las sesiones suscritas de todos los nodos.
+ * <p>
+ * RabbitMQ se arranca igual que el servicio "rabbitmq" de docker-compose.yml. Requiere Docker.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class WebSocketRelayFanOutTest {
+
+    private static final int STOMP_PORT = 61613;
+    private static final String RELAY_USER = "ticketlogger";
+
+    @Container
+    private static final GenericContainer<?> rabbitmq = new GenericContainer<>("rabbitmq:3.13")
+            .withCommand("sh", "-c", "rabbitmq-plugins enable --offline rabbitmq_stomp && rabbitmq-server")
+            .withEnv("RABBITMQ_DEFAULT_USER", RELAY_USER)
+            .withEnv("RABBITMQ_DEFAULT_PASS", RELAY_USER)
+            .withExposedPorts(STOMP_PORT)
+            .waitingFor(Wait.forLogMessage(".*Server startup complete.*", 1)
+                    .withStartupTimeout(Duration.ofMinutes(2)));
+
+    private BrokerTestNode nodeA;
+    private BrokerTestNode nodeB;
+
+    @BeforeEach
+    void startNodes() {
+        nodeA = new BrokerTestNode(relayProperties());
+        nodeB = new BrokerTestNode(relayProperties());
+    }
+
+    @AfterEach
+    void stopNodes() {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    @Test
+    void messagePublishedByOneNodeReachesSessionsOnEveryNodeOnce() {
+        nodeA.connect("a-1");
+        nodeB.connect("b-1");
+        nodeB.connect("b-2");
+        nodeA.subscribe("a-1", NotificationBroadcaster.NOTIFICATIONS_TOPIC);
+        nodeB.subscribe("b-1", NotificationBroadcaster.NOTIFICATIONS_TOPIC);
+        nodeB.subscribe("b-2", NotificationBroadcaster.NOTIFICATIONS_TOPIC);
+
+        nodeA.publish(NotificationBroadcaster.NOTIFICATIONS_TOPIC, "[{\"id\":\"1\"}]");
+
+        await().atMost(Duration.ofSeconds(10)).until(this::eachSessionHasOneCopy);
+        // Ninguna sesión recibe una copia duplicada poco después
+        await().during(Duration.ofMillis(500)).atMost(Duration.ofSeconds(2)).until(this::eachSessionHasOneCopy);
+    }
+
+    private boolean eachSessionHasOneCopy() {
+        return nodeA.messagesFor("a-1") == 1 && nodeB.messagesFor("b-1") == 1 && nodeB.messagesFor("b-2") == 1;
+    }
+
+    private static Map<String, Object> relayProperties() {
+        return Map.of(
+                "websocket.broker.relay.enabled", "true",
+                "websocket.broker.relay.host", rabbitmq.getHost(),
+                "websocket.broker.relay.port", String.valueOf(rabbitmq.getMappedPort(STOMP_PORT)),
+                "websocket.broker.relay.client-login", RELAY_USER,
+                "websocket.broker.relay.client-passcode", RELAY_USER,
+                "websocket.broker.relay.system-login", RELAY_USER,
+                "websocket.broker.relay.system-passcode", RELAY_USER);
+    }
+}
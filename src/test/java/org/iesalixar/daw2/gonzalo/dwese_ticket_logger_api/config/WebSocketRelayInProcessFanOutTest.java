@@ -0,0 +1,109 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.config;
+
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.NotificationBroadcaster;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Comprueba la difusión entre varias instancias de la API a través del broker STOMP externo, usando
+ * {@link InProcessStompBroker} en lugar de RabbitMQ para que se ejecute sin Docker. Cada nodo usa la
+ * configuración real del relay ({@code enableStompBrokerRelay}) y abre conexiones TCP reales al broker.
+ */
+class WebSocketRelayInProcessFanOutTest {
+
+    private static final int NODES = 3;
+    private static final int SESSIONS_PER_NODE = 2;
+    private static final int MESSAGES_PER_NODE = 20;
+
+    private InProcessStompBroker broker;
+
+    private final List<BrokerTestNode> nodes = new ArrayList<>();
+
+    @BeforeEach
+    void startBrokerAndNodes() throws IOException {
+        broker = new InProcessStompBroker();
+        for (int i = 0; i < NODES; i++) {
+            nodes.add(new BrokerTestNode(relayProperties()));
+        }
+    }
+
+    @AfterEach
+    void stopNodesAndBroker() throws IOException {
+        nodes.forEach(BrokerTestNode::close);
+        broker.close();
+    }
+
+    @Test
+    void everyMessageFromEveryNodeReachesEverySessionOnce() {
+        for (int node = 0; node < NODES; node++) {
+            for (int session = 0; session < SESSIONS_PER_NODE; session++) {
+                nodes.get(node).connect(sessionId(node, session));
+                nodes.get(node).subscribe(sessionId(node, session), NotificationBroadcaster.NOTIFICATIONS_TOPIC);
+            }
+            // Una sesión conectada pero sin suscripción
+            nodes.get(node).connect("idle-" + node);
+        }
+
+        for (int i = 0; i < MESSAGES_PER_NODE; i++) {
+            for (int node = 0; node < NODES; node++) {
+                nodes.get(node).publish(NotificationBroadcaster.NOTIFICATIONS_TOPIC, payload(node, i));
+            }
+        }
+
+        int expected = NODES * MESSAGES_PER_NODE;
+        await().atMost(Duration.ofSeconds(10)).until(() -> allSessionsReceived(expected));
+        // Ninguna sesión recibe copias duplicadas poco después
+        await().during(Duration.ofMillis(500)).atMost(Duration.ofSeconds(2)).until(() -> allSessionsReceived(expected));
+
+        List<String> published = new ArrayList<>();
+        for (int node = 0; node < NODES; node++) {
+            for (int i = 0; i < MESSAGES_PER_NODE; i++) {
+                published.add(payload(node, i));
+            }
+        }
+        // Cada sesión recibe cada mensaje exactamente una vez; el canal de salida no garantiza el orden
+        for (int node = 0; node < NODES; node++) {
+            for (int session = 0; session < SESSIONS_PER_NODE; session++) {
+                assertThat(nodes.get(node).payloadsFor(sessionId(node, session)))
+                        .containsExactlyInAnyOrderElementsOf(published);
+            }
+            assertThat(nodes.get(node).messagesFor("idle-" + node)).isZero();
+        }
+    }
+
+    private boolean allSessionsReceived(int expected) {
+        for (int node = 0; node < NODES; node++) {
+            for (int session = 0; session < SESSIONS_PER_NODE; session++) {
+                if (nodes.get(node).messagesFor(sessionId(node, session)) != expected) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static String sessionId(int node, int session) {
+        return node + "-" + session;
+    }
+
+    private static String payload(int node, int index) {
+        return "node-" + node + ":" + index;
+    }
+
+    private Map<String, Object> relayProperties() {
+        return Map.of(
+                "websocket.broker.relay.enabled", "true",
+                "websocket.broker.relay.host", broker.getHost(),
+                "websocket.broker.relay.port", String.valueOf(broker.getPort()));
+    }
+}
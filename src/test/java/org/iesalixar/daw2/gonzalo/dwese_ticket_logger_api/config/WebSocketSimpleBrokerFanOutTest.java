@@ -0,0 +1,47 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.config;
+
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.NotificationBroadcaster;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Comprueba la difusión con el broker simple en memoria (una sola instancia de la API):
+ * cada sesión suscrita recibe una única copia de cada mensaje publicado.
+ */
+class WebSocketSimpleBrokerFanOutTest {
+
+    private BrokerTestNode node;
+
+    @BeforeEach
+    void startNode() {
+        node = new BrokerTestNode(Map.of("websocket.broker.relay.enabled", "false"));
+    }
+
+    @AfterEach
+    void stopNode() {
+        node.close();
+    }
+
+    @Test
+    void everySubscribedSessionReceivesOneCopy() {
+        node.connect("session-1");
+        node.connect("session-2");
+        node.connect("session-3");
+        node.subscribe("session-1", NotificationBroadcaster.NOTIFICATIONS_TOPIC);
+        node.subscribe("session-2", NotificationBroadcaster.NOTIFICATIONS_TOPIC);
+
+        node.publish(NotificationBroadcaster.NOTIFICATIONS_TOPIC, "[{\"id\":\"1\"}]");
+
+        await().atMost(Duration.ofSeconds(10)).until(() ->
+                node.messagesFor("session-1") == 1 && node.messagesFor("session-2") == 1);
+        // Sin suscripción no se recibe nada
+        assertThat(node.messagesFor("session-3")).isZero();
+    }
+}
@@ -0,0 +1,80 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmark de la resolución de los roles de un token en {@link GrantedAuthority}:
+ * crear una autoridad nueva por rol (como se hacía en cada petición o frame STOMP) frente a
+ * {@link AuthorityRegistry#resolve(List)}, que devuelve la lista canónica ya construida.
+ * <p>
+ * Cada invocación recibe una copia nueva de la lista de roles, como ocurre al leer el claim del token.
+ * Se ejecuta con el perfilador de GC para comparar también los bytes asignados por operación:
+ * <pre>
+ * mvn test-compile
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *     org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services.AuthorityRegistryBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthorityRegistryBenchmark {
+
+    // Roles del claim "roles" de un token
+    @Param({"ROLE_USER", "ROLE_USER,ROLE_MANAGER,ROLE_ADMIN"})
+    public String tokenRoles;
+
+    private List<String> roles;
+
+    private AuthorityRegistry authorityRegistry;
+
+    @Setup
+    public void setUp() {
+        roles = List.of(tokenRoles.split(","));
+        authorityRegistry = new AuthorityRegistry();
+        List.of("ROLE_ADMIN", "ROLE_MANAGER", "ROLE_USER").forEach(authorityRegistry::register);
+    }
+
+    @Benchmark
+    public List<GrantedAuthority> newAuthoritiesPerRequest() {
+        return new ArrayList<>(roles).stream()
+                .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(role))
+                .toList();
+    }
+
+    @Benchmark
+    public List<GrantedAuthority> authorityRegistry() {
+        return authorityRegistry.resolve(new ArrayList<>(roles));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AuthorityRegistryBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
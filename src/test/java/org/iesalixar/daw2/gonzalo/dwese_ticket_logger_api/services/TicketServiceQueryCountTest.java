@@ -0,0 +1,99 @@
+package org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.dtos.TicketDTO;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.Product;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.entities.Ticket;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.mappers.ProductMapper;
+import org.iesalixar.daw2.gonzalo.dwese_ticket_logger_api.mappers.TicketMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Comprueba que el listado paginado de tickets hace el mismo número de consultas
+ * sea cual sea el tamaño de la página (sin N+1 al cargar los productos).
+ */
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({TicketService.class, TicketMapper.class, ProductMapper.class})
+class TicketServiceQueryCountTest {
+
+    private static final int TICKETS = 30;
+    private static final int PRODUCTS_PER_TICKET = 3;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TicketService ticketService;
+
+    @BeforeEach
+    void createTickets() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS_PER_TICKET * 2; i++) {
+            Product product = new Product();
+            product.setName("Producto " + i);
+            product.setPrice(new BigDecimal("1.25").multiply(BigDecimal.valueOf(i + 1)));
+            products.add(entityManager.persist(product));
+        }
+        for (int i = 0; i < TICKETS; i++) {
+            Ticket ticket = new Ticket();
+            ticket.setDate(new Date());
+            ticket.setDiscount(BigDecimal.valueOf(i % 10));
+            ticket.setProducts(new ArrayList<>(products.subList(i % PRODUCTS_PER_TICKET,
+                    i % PRODUCTS_PER_TICKET + PRODUCTS_PER_TICKET)));
+            entityManager.persist(ticket);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void getAllTicketsUsesSameNumberOfQueriesForAnyPageSize() {
+        long smallPage = countStatements(5);
+        long largePage = countStatements(20);
+
+        // Identificadores de la página, tickets con sus productos y total de elementos
+        assertThat(smallPage).isEqualTo(3);
+        assertThat(largePage).isEqualTo(smallPage);
+    }
+
+    /**
+     * Obtiene una página de tickets con todos sus productos y devuelve cuántas sentencias se han ejecutado.
+     */
+    private long countStatements(int pageSize) {
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Page<TicketDTO> page = ticketService.getAllTickets(PageRequest.of(0, pageSize, Sort.by("id")));
+
+        assertThat(page.getContent()).hasSize(pageSize);
+        assertThat(page.getTotalElements()).isEqualTo(TICKETS);
+        assertThat(page.getContent()).allSatisfy(ticket ->
+                assertThat(ticket.getProducts()).hasSize(PRODUCTS_PER_TICKET));
+        return statistics.getPrepareStatementCount();
+    }
+}